@@ -0,0 +1,171 @@
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free queue of moves and commands for a game, with any number of
+ * producers (key handlers, timers, bots, network inputs) and a single consumer
+ * that owns the game. Submitting never blocks: a producer swaps its entry in as
+ * the new tail with one atomic exchange and then links it to the old tail. The
+ * consumer applies the entries in the order they were submitted, so every
+ * change to the game happens on one thread, and records how long each entry
+ * waited in the queue.
+ * 
+ * Only one thread may call drain and await; submit may be called from any
+ * thread.
+ * 
+ * @author Sayf Elhawary
+ */
+public class ActionQueue {
+
+	/**
+	 * An entry of the queue.
+	 */
+	private static class Node {
+
+		private final Action action_; // The move, or null for a command.
+
+		private final Runnable command_; // The command, or null for a move.
+
+		private final long submitted_; // When the entry was submitted, from
+		                               // System.nanoTime().
+
+		private volatile Node next_; // The entry submitted after this one, or null
+		                             // if there is none yet.
+
+		Node ( Action action, Runnable command, long submitted ) {
+			action_ = action;
+			command_ = command;
+			submitted_ = submitted;
+			next_ = null;
+		}
+
+	}
+
+	private AtomicReference<Node> tail_; // The last entry submitted.
+
+	private Node head_; // The last entry taken by the consumer. Only the
+	                    // consumer uses it.
+
+	private volatile Thread waiting_; // The consumer while it is parked in
+	                                  // await, otherwise null.
+
+	private Distribution latency_; // The nanoseconds between submitting and
+	                               // applying each entry. Only the consumer
+	                               // uses it.
+
+	/**
+	 * Creates an empty queue.
+	 */
+	public ActionQueue () {
+		head_ = new Node(null,null,0);
+		tail_ = new AtomicReference<>(head_);
+		waiting_ = null;
+		latency_ = new Distribution();
+	}
+
+	/**
+	 * Adds a move to the queue.
+	 * 
+	 * @param action
+	 *          The move.
+	 */
+	public void submit ( Action action ) {
+		if ( action == null ) {
+			throw new IllegalArgumentException("The action cannot be null.");
+		}
+		enqueue(new Node(action,null,System.nanoTime()));
+	}
+
+	/**
+	 * Adds a command to the queue. The command runs on the consumer's thread, in
+	 * order with the moves, so it may use the game freely.
+	 * 
+	 * @param command
+	 *          The command.
+	 */
+	public void submit ( Runnable command ) {
+		if ( command == null ) {
+			throw new IllegalArgumentException("The command cannot be null.");
+		}
+		enqueue(new Node(null,command,System.nanoTime()));
+	}
+
+	/**
+	 * Applies every entry submitted so far to a game, in order. Only the
+	 * consumer may call it.
+	 * 
+	 * @param game
+	 *          The game moves are applied to.
+	 * @return The number of entries applied.
+	 */
+	public int drain ( Game game ) {
+		int applied = 0;
+		Node next;
+		while ( (next = head_.next_) != null ) {
+			head_ = next;
+			if ( next.action_ != null ) {
+				game.movePiece(next.action_);
+			} else {
+				next.command_.run();
+			}
+			latency_.add(System.nanoTime() - next.submitted_);
+			applied++;
+		}
+		return applied;
+	}
+
+	/**
+	 * Waits until an entry is submitted or the time runs out. It may return
+	 * early, so callers check the queue again. Only the consumer may call it.
+	 * 
+	 * @param nanos
+	 *          The longest time to wait, in nanoseconds.
+	 */
+	public void await ( long nanos ) {
+		// publish the consumer before looking at the queue, so that a producer
+		// either sees it and unparks it or has linked its entry in time to be seen
+		waiting_ = Thread.currentThread();
+		if ( head_.next_ == null ) {
+			LockSupport.parkNanos(this,nanos);
+		}
+		waiting_ = null;
+	}
+
+	/**
+	 * Gets whether there are entries waiting to be applied. Only the consumer
+	 * may call it.
+	 * 
+	 * @return True if there are no entries waiting, false otherwise.
+	 */
+	public boolean isEmpty () {
+		return head_.next_ == null;
+	}
+
+	/**
+	 * Gets the time entries spent between being submitted and being applied.
+	 * Only the consumer may call it, or another thread once the consumer has
+	 * stopped.
+	 * 
+	 * @return The latencies, in nanoseconds.
+	 */
+	public Distribution getLatency () {
+		return latency_;
+	}
+
+	/**
+	 * Links an entry in as the new tail of the queue and wakes the consumer if
+	 * it is waiting.
+	 * 
+	 * @param node
+	 *          The entry.
+	 */
+	private void enqueue ( Node node ) {
+		Node previous = tail_.getAndSet(node);
+		previous.next_ = node;
+		Thread waiting = waiting_;
+		if ( waiting != null ) {
+			LockSupport.unpark(waiting);
+		}
+	}
+
+}
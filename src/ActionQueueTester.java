@@ -0,0 +1,142 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tester for ActionQueue and GameLoop.
+ *
+ * @author Sayf Elhawary
+ */
+public class ActionQueueTester {
+
+	public static void main(String[] args) throws InterruptedException {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: drain - applies entries in order
+			// starting state: empty queue
+			// input: LEFT, command, RIGHT
+			// expected result: true
+			System.out.println("drain - applies entries in order");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42));
+			game.start();
+			for (int i = 0; i < 5; i++) {
+				game.movePiece(Action.DOWN); // bring the piece onto the board
+			}
+			int col = game.getCurrentPieceCol();
+			ActionQueue queue = new ActionQueue();
+			List<Integer> cols = new ArrayList<>();
+			queue.submit(Action.LEFT);
+			queue.submit(() -> cols.add(game.getCurrentPieceCol()));
+			queue.submit(Action.RIGHT);
+			boolean test = queue.drain(game) == 3 && queue.isEmpty() && cols.size() == 1
+			    && cols.get(0) == col - 1 && game.getCurrentPieceCol() == col
+			    && queue.getLatency().getCount() == 3;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: submit - many producers, one consumer
+			// starting state: running loop
+			// input: 4 producers submitting 100000 commands each
+			// expected result: every command runs, in order for each producer
+			System.out.println("submit - many producers, one consumer");
+			System.out.println();
+			int producers = 4, commands = 100000;
+			GameLoop loop = new GameLoop(new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42)));
+			int[] last = new int[producers];
+			boolean[] ordered = { true };
+			loop.start();
+			Thread[] threads = new Thread[producers];
+			for (int i = 0; i < producers; i++) {
+				int producer = i;
+				threads[i] = new Thread(() -> {
+					for (int j = 1; j <= commands; j++) {
+						int command = j;
+						loop.submit(() -> {
+							if (last[producer] != command - 1) {
+								ordered[0] = false;
+							}
+							last[producer] = command;
+						});
+					}
+				});
+				threads[i].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			loop.stop();
+			loop.join();
+			boolean test = ordered[0] && loop.getInputLatency().getCount() == producers * commands + 1;
+			for (int count : last) {
+				if (count != commands) {
+					test = false;
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: setGravity - fixed timestep
+			// starting state: running loop with a started game
+			// input: gravity - 1 ms, for 200 ms
+			// expected result: about 200 ticks, each with its jitter recorded
+			System.out.println("setGravity - fixed timestep");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42));
+			GameLoop loop = new GameLoop(game);
+			loop.setGravity(1_000_000);
+			loop.submit(game::start);
+			long start = System.nanoTime();
+			loop.start();
+			Thread.sleep(200);
+			loop.stop();
+			loop.join();
+			long expected = (System.nanoTime() - start) / 1_000_000;
+			long ticks = loop.getTicks();
+			boolean test = ticks + loop.getSkippedTicks() >= expected * 3 / 4 && ticks + loop.getSkippedTicks() <= expected + 1
+			    && loop.getJitter().getCount() == ticks && game.getPiecesPlayed() > 1;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED! " + ticks + " ticks, " + loop.getSkippedTicks() + " skipped, " + expected + " expected");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: getGravityPeriod - guideline levels
+			// starting state: n/a
+			// input: level - 1, 15, 20
+			// expected result: 1 s, about 7 ms, under 1 ms
+			System.out.println("getGravityPeriod - guideline levels");
+			System.out.println();
+			boolean test = GameLoop.getGravityPeriod(1) == 1_000_000_000L
+			    && Math.abs(GameLoop.getGravityPeriod(15) - 7_000_000L) < 500_000L
+			    && GameLoop.getGravityPeriod(20) < 1_000_000L;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+}
@@ -1,18 +1,94 @@
-import javafx.scene.paint.Color;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
 
 /**
  * Board is the main playing area where the pieces land.
  * 
+ * The contents are stored as a bitboard: each row is a run of longs, one per
+ * 64 columns, whose bit col % 64 of word col / 64 is set when (row, col)
+ * holds a block, so collision checks are mask ANDs over the one or two words
+ * a piece overlaps. The color of each occupied cell is kept separately as an
+ * index into a small palette. Storage is allocated only up to the top of the
+ * highest stack the board has held, so a tall board costs memory in
+ * proportion to how high it is filled, not to its height.
+ * 
+ * Rows are addressed through a row table that maps each row to the storage
+ * slot holding its mask, colors and count of blocks. Clearing rows recycles
+ * the slots of the cleared rows to the top of the stack and renumbers the
+ * rows above them in the table, so no cell is ever copied. The board also
+ * keeps the highest occupied row and the rows touched since rows were last
+ * cleared, so clearing rows only looks at rows that can have been filled and
+ * never scans the empty rows above the stack. The height of each column's
+ * surface combined with a piece's skirt gives the row a piece drops to in time
+ * proportional to the piece's width.
+ * 
+ * The board also keeps a 64-bit Zobrist-style hash of its occupancy: the XOR
+ * of a key for each row, mixed from the row's index and a hash of its
+ * contents that is kept with its slot. Adding a piece updates only the rows it
+ * touches, clearing rows re-keys the rows that move without reading them, and
+ * equal occupancies always have equal hashes, so positions can be memoized
+ * cheaply.
+ * 
  * @author Sayf Elhawary
  */
 public class Board {
 
+	private static final long MAX_CELLS = Integer.MAX_VALUE - 8; // The most
+	                                                             // cells a
+	                                                             // board can
+	                                                             // have.
+
+	private static final int MIN_CAPACITY = 32; // The fewest rows storage is
+	                                            // allocated for.
+
+	private static final int MAX_COLORS = 256; // The most distinct colors a cell's
+	                                           // byte index can address.
+
 	private int boardWidth_, boardHeight_; // The board's dimensions, in terms of
 	                                       // a number of blocks.boardWidth_ >= 0
 	// and boardHeight_ >= 0.
 
-	private Piece[][] pieces_; // A 2D array of Pieces storing the contents of the
-	                           // board.
+	private int words_; // The number of longs in each row's occupancy mask.
+
+	private int[] slot_; // The storage slot of each row. Its length is the
+	                     // number of rows allocated, and the slots of the rows
+	                     // above the stack are empty.
+
+	private long[] rows_; // The occupancy mask of each slot, words_ longs per
+	                      // slot.
+
+	private int[] rowFill_; // The number of blocks in each slot.
+
+	private long[] contents_; // The hash of each slot's mask, whatever row it
+	                          // is in, or 0 if the slot is empty.
+
+	private int[] freed_; // The slots of the rows being cleared.
+
+	private int[] columnHeight_; // One more than the highest occupied row in each
+	                             // column, or 0 if the column is empty.
+
+	private int highestRow_; // The highest row containing a block, or -1 if the
+	                         // board is empty.
+
+	private int blockCount_; // The number of blocks on the board.
+
+	private long hash_; // The XOR of rowHash over the board's rows.
+
+	private int dirtyLow_, dirtyHigh_; // The rows pieces were added to since
+	                                   // rows were last cleared. Empty when
+	                                   // dirtyLow_ > dirtyHigh_.
+
+	private byte[] colors_; // The palette index of each cell, boardWidth_ per
+	                        // slot. Only meaningful for occupied cells.
+
+	private int[] palette_; // The colors of the blocks on the board.
+
+	private int paletteSize_; // The number of colors in the palette.
+
+	private BoardSnapshot snapshot_; // The snapshot of the current contents, or
+	                                 // null if the contents changed since the
+	                                 // last one was taken.
 
 	/**
 	 * Creates a board according to the desired dimensions.
@@ -20,15 +96,39 @@ public class Board {
 	 * @param boardWidth
 	 *          The desired width for the board. boardWidth >= 0.
 	 * @param boardHeight
-	 *          The desired height for the board. boardHeight >= 0.
+	 *          The desired height for the board. boardHeight >= 0, and the
+	 *          board has fewer than 2^31 cells.
 	 */
 	public Board ( int boardWidth, int boardHeight ) {
 		if ( boardWidth < 0 || boardHeight < 0 ) {
 			throw new IllegalArgumentException("Input a number more than or equal to zero.");
 		}
+		if ( (long) boardWidth * boardHeight > MAX_CELLS ) {
+			throw new IllegalArgumentException("The board cannot have more than "
+			    + MAX_CELLS + " cells.");
+		}
 		boardWidth_ = boardWidth;
 		boardHeight_ = boardHeight;
-		pieces_ = new Piece[boardHeight][boardWidth];
+		words_ = (boardWidth + Long.SIZE - 1) / Long.SIZE;
+		int capacity = Math.min(boardHeight,MIN_CAPACITY);
+		slot_ = new int[capacity];
+		for ( int i = 0 ; i < capacity ; i++ ) {
+			slot_[i] = i;
+		}
+		rows_ = new long[capacity * words_];
+		rowFill_ = new int[capacity];
+		contents_ = new long[capacity];
+		freed_ = new int[8];
+		columnHeight_ = new int[boardWidth];
+		highestRow_ = -1;
+		blockCount_ = 0;
+		hash_ = 0;
+		dirtyLow_ = boardHeight;
+		dirtyHigh_ = -1;
+		colors_ = new byte[capacity * boardWidth];
+		palette_ = new int[8];
+		paletteSize_ = 0;
+		snapshot_ = null;
 	}
 
 	/**
@@ -65,10 +165,8 @@ public class Board {
 		if ( row < 0 || col < 0 || row >= boardHeight_ || col >= boardWidth_ ) {
 			throw new IllegalArgumentException("The index is out of bounds. Input a number more than or equal to zero.");
 		}
-		if ( pieces_[row][col] == null ) {
-			return true;
-		}
-		return false;
+		return row > highestRow_
+		    || (rows_[slot_[row] * words_ + (col >>> 6)] & (1L << col)) == 0;
 	}
 
 	/**
@@ -79,24 +177,45 @@ public class Board {
 	 * @param col
 	 *          The desired piece's column. col >=0 and less than the board's
 	 *          width.
-	 * @return The piece's color occupying a particular position.
+	 * @return The piece's color occupying a particular position, as 0xRRGGBB,
+	 *         or -1 if the position is empty.
 	 */
-	public Color getPositionColor ( int row, int col ) {
-		if ( row < 0 || col < 0 || row >= boardHeight_ || col >= boardWidth_ ) {
-			throw new IllegalArgumentException("The index is out of bounds. Input a number more than or equal to zero.");
+	public int getPositionColor ( int row, int col ) {
+		if ( isEmpty(row,col) ) {
+			return -1;
 		}
-		return pieces_[row][col].getPieceColor();
+		return palette_[colors_[slot_[row] * boardWidth_ + col] & 0xFF];
 	}
 
 	/**
 	 * Clears the board
 	 */
 	public void clear () {
-		for ( int i = 0 ; i < boardHeight_ ; i++ ) {
-			for ( int j = 0 ; j < boardWidth_ ; j++ ) {
-				pieces_[i][j] = null;
-			}
+		for ( int i = 0 ; i <= highestRow_ ; i++ ) {
+			emptySlot(slot_[i]);
+		}
+		Arrays.fill(columnHeight_,0);
+		highestRow_ = -1;
+		blockCount_ = 0;
+		hash_ = 0;
+		dirtyLow_ = boardHeight_;
+		dirtyHigh_ = -1;
+		snapshot_ = null;
+	}
+
+	/**
+	 * Gets an immutable snapshot of the board's contents. The same snapshot is
+	 * returned until the contents change.
+	 * 
+	 * @return The snapshot.
+	 */
+	public BoardSnapshot getSnapshot () {
+		if ( snapshot_ == null ) {
+			snapshot_ = new BoardSnapshot(boardWidth_,boardHeight_,words_,slot_,
+			                              rows_,colors_,palette_,highestRow_ + 1,
+			                              paletteSize_);
 		}
+		return snapshot_;
 	}
 
 	/**
@@ -117,17 +236,23 @@ public class Board {
 		if ( row < 0 || col < 0 || row >= boardHeight_ || col >= boardWidth_ ) {
 			return false;
 		}
-		for ( int i = 0 ; i < piece.getBody().length ; i++ ) {
-			Block current = piece.getBody()[i];
-			if ( current.getRow() + row < 0 || current.getCol() + col < 0
-			    || current.getCol() + col >= boardWidth_ ) {
+		if ( col + piece.getPieceWidth() > boardWidth_ ) {
+			return false;
+		}
+		// a piece's row spans at most two words; rows above the stack are empty
+		int word = col >>> 6;
+		int shift = col & 63;
+		for ( int i = 0 ; i < piece.getPieceHeight()
+		    && row + i <= highestRow_ ; i++ ) {
+			int index = slot_[row + i] * words_ + word;
+			long mask = piece.getRowMask(i);
+			if ( (rows_[index] & (mask << shift)) != 0 ) {
 				return false;
-			} else if ( current.getRow() + row < boardHeight_
-			    && !isEmpty(current.getRow() + row,current.getCol() + col) ) {
-				    return false;
-			    } else {
-
-			    }
+			}
+			if ( shift != 0 && (mask >>> (Long.SIZE - shift)) != 0
+			    && (rows_[index + 1] & (mask >>> (Long.SIZE - shift))) != 0 ) {
+				return false;
+			}
 		}
 		return true;
 	}
@@ -145,10 +270,42 @@ public class Board {
 	 */
 	public void addPiece ( Piece piece, int row, int col ) {
 		if ( canPlace(piece,row,col) ) {
-			for ( int i = 0 ; i < piece.getBody().length ; i++ ) {
-				if ( piece.getBody()[i].getRow() + row < boardHeight_ ) {
-					pieces_[piece.getBody()[i].getRow() + row][piece.getBody()[i].getCol()
-					    + col] = piece;
+			int top = Math.min(row + piece.getPieceHeight(),boardHeight_) - 1;
+			ensureCapacity(top + 1);
+			int word = col >>> 6;
+			int shift = col & 63;
+			for ( int i = row ; i <= top ; i++ ) {
+				int slot = slot_[i];
+				int index = slot * words_ + word;
+				long mask = piece.getRowMask(i - row);
+				long contents = contents_[slot];
+				hash_ ^= rowHash(i,contents);
+				contents ^= wordHash(rows_[index],word);
+				rows_[index] |= mask << shift;
+				contents ^= wordHash(rows_[index],word);
+				if ( shift != 0 && (mask >>> (Long.SIZE - shift)) != 0 ) {
+					contents ^= wordHash(rows_[index + 1],word + 1);
+					rows_[index + 1] |= mask >>> (Long.SIZE - shift);
+					contents ^= wordHash(rows_[index + 1],word + 1);
+				}
+				contents_[slot] = contents;
+				hash_ ^= rowHash(i,contents);
+				rowFill_[slot] += Long.bitCount(mask);
+				blockCount_ += Long.bitCount(piece.getRowMask(i - row));
+			}
+			highestRow_ = Math.max(highestRow_,top);
+			snapshot_ = null;
+			dirtyLow_ = Math.min(dirtyLow_,row);
+			dirtyHigh_ = Math.max(dirtyHigh_,top);
+			byte color = (byte) colorIndex(piece.getPieceColor());
+			Block[] body = piece.getBody();
+			for ( int i = 0 ; i < body.length ; i++ ) {
+				if ( body[i].getRow() + row < boardHeight_ ) {
+					colors_[slot_[body[i].getRow() + row] * boardWidth_
+					    + body[i].getCol() + col] = color;
+					columnHeight_[body[i].getCol() + col] =
+					    Math.max(columnHeight_[body[i].getCol() + col],
+					             body[i].getRow() + row + 1);
 				}
 			}
 		}
@@ -156,7 +313,9 @@ public class Board {
 
 	/**
 	 * Gets the row where the desired piece would land if it was dropped from its
-	 * current position.
+	 * current position. The piece lands where its skirt first meets the surface
+	 * of the stack, unless it starts below the surface of some column (under an
+	 * overhang), in which case it is moved down a row at a time.
 	 * 
 	 * @param piece
 	 *          The piece that will be inserted.
@@ -173,6 +332,20 @@ public class Board {
 			throw new IllegalArgumentException("The index is out of bounds. Input a number more than or equal to zero.");
 		}
 
+		if ( col + piece.getPieceWidth() <= boardWidth_ ) {
+			int landing = 0;
+			for ( int i = 0 ; i < piece.getPieceWidth() ; i++ ) {
+				int skirt = piece.getPieceSkirt(i);
+				if ( skirt != Integer.MAX_VALUE ) {
+					landing = Math.max(landing,columnHeight_[col + i] - skirt);
+				}
+			}
+			if ( landing <= row ) {
+				// everything between the piece and the surface is empty
+				return landing;
+			}
+		}
+
 		for ( int i = row ; i >= 0 ; i-- ) {
 			if ( !canPlace(piece,i,col) ) {
 				return i + 1;
@@ -184,62 +357,410 @@ public class Board {
 
 	/**
 	 * Removes rows that are filled all the way across and gets the number of rows
-	 * cleared.
+	 * cleared. Only the rows pieces were added to since the last call can be
+	 * full. The cleared rows' slots are emptied and recycled, and the rows above
+	 * them are moved down by renumbering them in the row table, so no cell is
+	 * copied.
 	 * 
 	 * @return the number of rows cleared. If no rows were cleared, returns 0.
 	 */
 	public int clearRows () {
+		int first = dirtyLow_;
+		while ( first <= dirtyHigh_ && rowFill_[slot_[first]] != boardWidth_ ) {
+			first++;
+		}
+		int last = dirtyHigh_;
+		dirtyLow_ = boardHeight_;
+		dirtyHigh_ = -1;
+		if ( first > last ) {
+			return 0;
+		}
+
 		int clearedRows = 0;
-		for ( int i = boardHeight_ - 1 ; i >= 0 ; i-- ) {
-			if ( rowFilledBlocks(i) == boardWidth_ ) {
-				for ( int j = i ; j <= getHighestBlock() ; j++ ) {
-					for ( int k = 0 ; k < boardWidth_ ; k++ ) {
-						if ( j == boardHeight_ - 1 ) {
-							pieces_[j][k] = null;
-						} else {
-							pieces_[j][k] = pieces_[j + 1][k];
-						}
-					}
+		snapshot_ = null;
+		for ( int i = first ; i <= highestRow_ ; i++ ) {
+			int slot = slot_[i];
+			if ( i <= last && rowFill_[slot] == boardWidth_ ) {
+				hash_ ^= rowHash(i,contents_[slot]);
+				emptySlot(slot);
+				if ( clearedRows == freed_.length ) {
+					freed_ = Arrays.copyOf(freed_,freed_.length * 2);
 				}
-				clearedRows++;
+				freed_[clearedRows++] = slot;
+			} else if ( clearedRows > 0 ) {
+				// renumber the surviving row past the rows cleared below it
+				hash_ ^= rowHash(i,contents_[slot])
+				    ^ rowHash(i - clearedRows,contents_[slot]);
+				slot_[i - clearedRows] = slot;
 			}
 		}
+		// the emptied slots become the rows vacated at the top of the stack
+		System.arraycopy(freed_,0,slot_,highestRow_ + 1 - clearedRows,
+		                 clearedRows);
+		highestRow_ -= clearedRows;
+		blockCount_ -= clearedRows * boardWidth_;
+		while ( highestRow_ >= 0 && rowFill_[slot_[highestRow_]] == 0 ) {
+			highestRow_--;
+		}
+		computeColumnHeights();
 		return clearedRows;
 	}
 
 	/**
-	 * Gets the highest row on the board containing a block.
+	 * Empties a slot. Its colors are left as they are, since they are only
+	 * meaningful for occupied cells.
 	 * 
-	 * @return the highest row on the board containing a block. If the board is
-	 *         empty, returns -1.
+	 * @param slot
+	 *          The slot.
 	 */
-	private int getHighestBlock () {
-		for ( int i = boardHeight_ - 1 ; i >= 0 ; i-- ) {
-			for ( int j = boardWidth_ - 1 ; j >= 0 ; j-- ) {
-				if ( !isEmpty(i,j) ) {
-					return i;
+	private void emptySlot ( int slot ) {
+		Arrays.fill(rows_,slot * words_,(slot + 1) * words_,0);
+		rowFill_[slot] = 0;
+		contents_[slot] = 0;
+	}
+
+	/**
+	 * Recomputes the height of each column's surface, scanning each word's
+	 * columns down from the top of the stack until every column that had blocks
+	 * has been found again.
+	 */
+	private void computeColumnHeights () {
+		for ( int word = 0 ; word < words_ ; word++ ) {
+			int base = word * Long.SIZE;
+			long remaining = 0;
+			for ( int i = 0 ; i < Long.SIZE && base + i < boardWidth_ ; i++ ) {
+				if ( columnHeight_[base + i] > 0 ) {
+					remaining |= 1L << i;
+					columnHeight_[base + i] = 0;
+				}
+			}
+			for ( int i = highestRow_ ; i >= 0 && remaining != 0 ; i-- ) {
+				long found = rows_[slot_[i] * words_ + word] & remaining;
+				remaining &= ~found;
+				while ( found != 0 ) {
+					columnHeight_[base + Long.numberOfTrailingZeros(found)] = i + 1;
+					found &= found - 1;
 				}
 			}
 		}
-		return -1;
+	}
+
+	/**
+	 * Makes sure storage is allocated for a number of rows, growing it
+	 * geometrically up to the board's height. The new rows get the new, empty
+	 * slots.
+	 * 
+	 * @param rows
+	 *          The number of rows, from the bottom. rows <= the board's height.
+	 */
+	private void ensureCapacity ( int rows ) {
+		int allocated = slot_.length;
+		if ( rows <= allocated ) {
+			return;
+		}
+		int capacity = (int) Math.min(boardHeight_,Math.max(rows,2L * allocated));
+		slot_ = Arrays.copyOf(slot_,capacity);
+		for ( int i = allocated ; i < capacity ; i++ ) {
+			slot_[i] = i;
+		}
+		rows_ = Arrays.copyOf(rows_,capacity * words_);
+		rowFill_ = Arrays.copyOf(rowFill_,capacity);
+		contents_ = Arrays.copyOf(contents_,capacity);
+		colors_ = Arrays.copyOf(colors_,capacity * boardWidth_);
+	}
+
+	/**
+	 * Gets the height of a column's surface: one more than the highest row of
+	 * the column containing a block.
+	 * 
+	 * @param col
+	 *          The desired column. col >=0 and less than the board's width.
+	 * @return The height of the column, or 0 if the column is empty.
+	 */
+	int getColumnHeight ( int col ) {
+		if ( col < 0 || col >= boardWidth_ ) {
+			throw new IllegalArgumentException("The index is out of bounds. Input a number more than or equal to zero.");
+		}
+		return columnHeight_[col];
+	}
+
+	/**
+	 * Gets the height of the stack: one more than the highest row containing a
+	 * block.
+	 * 
+	 * @return The height of the stack, or 0 if the board is empty.
+	 */
+	int getStackHeight () {
+		return highestRow_ + 1;
+	}
+
+	/**
+	 * Gets the hash of the board's occupancy. Boards with blocks in the same
+	 * positions have the same hash, whatever the blocks' colors.
+	 * 
+	 * @return The hash, or 0 if the board is empty.
+	 */
+	public long getHash () {
+		return hash_;
+	}
+
+	/**
+	 * Computes the hash of the board's occupancy from scratch, without the
+	 * hashes kept for each slot.
+	 * 
+	 * @return The hash. It always equals getHash().
+	 */
+	long computeHash () {
+		long hash = 0;
+		for ( int i = 0 ; i <= highestRow_ ; i++ ) {
+			hash ^= rowHash(i,computeContents(slot_[i]));
+		}
+		return hash;
+	}
+
+	/**
+	 * Computes the hash of a slot's mask from scratch: the XOR of wordHash over
+	 * its words.
+	 * 
+	 * @param slot
+	 *          The slot.
+	 * @return The hash, or 0 if the slot is empty.
+	 */
+	private long computeContents ( int slot ) {
+		long contents = 0;
+		for ( int i = 0 ; i < words_ ; i++ ) {
+			contents ^= wordHash(rows_[slot * words_ + i],i);
+		}
+		return contents;
+	}
+
+	/**
+	 * Gets the part of a row's contents hash contributed by one word of its
+	 * mask: a SplitMix64 mix of the word and its index.
+	 * 
+	 * @param mask
+	 *          The word.
+	 * @param word
+	 *          The word's index in the row.
+	 * @return The hash, or 0 if the word is empty.
+	 */
+	private static long wordHash ( long mask, int word ) {
+		return mask == 0 ? 0 : mix(mask ^ word * 0xc2b2ae3d27d4eb4fL);
+	}
+
+	/**
+	 * Gets the key of a row for the board's hash: a SplitMix64 mix of the hash
+	 * of the row's contents and a key for its index. Empty rows have key 0, so
+	 * they never need to be hashed.
+	 * 
+	 * @param row
+	 *          The row's index.
+	 * @param contents
+	 *          The hash of the row's mask.
+	 * @return The key.
+	 */
+	private static long rowHash ( int row, long contents ) {
+		return contents == 0 ? 0 : mix(contents ^ (row + 1) * 0x9e3779b97f4a7c15L);
+	}
+
+	/**
+	 * Applies the SplitMix64 finalizer to a value.
+	 * 
+	 * @param z
+	 *          The value.
+	 * @return The mixed value.
+	 */
+	private static long mix ( long z ) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Gets the number of blocks on the board.
+	 * 
+	 * @return The number of blocks.
+	 */
+	int getBlockCount () {
+		return blockCount_;
 	}
 
 	/**
 	 * Gets the number of filled blocks in a particular row
 	 * 
+	 * @param row
+	 *          The desired row. row >=0 and less than the board's height.
 	 * @return the number of filled blocks in a particular row.
 	 */
-	private int rowFilledBlocks ( int row ) {
+	int getRowFill ( int row ) {
 		if ( row < 0 || row >= boardHeight_ ) {
 			throw new IllegalArgumentException("The index is out of bounds. Input a number more than or equal to zero.");
 		}
-		int filledBlocks = 0;
-		for ( int i = 0 ; i < boardWidth_ ; i++ ) {
-			if ( !isEmpty(row,i) ) {
-				filledBlocks++;
+		return row > highestRow_ ? 0 : rowFill_[slot_[row]];
+	}
+
+	/**
+	 * Copies the contents of another board of the same size into this one.
+	 * 
+	 * @param other
+	 *          The board to copy.
+	 */
+	void copyFrom ( Board other ) {
+		if ( other.boardWidth_ != boardWidth_
+		    || other.boardHeight_ != boardHeight_ ) {
+			throw new IllegalArgumentException("The boards must be the same size.");
+		}
+		// rows above both stacks are empty on both boards
+		int rows = other.highestRow_ + 1;
+		ensureCapacity(rows);
+		for ( int i = 0 ; i < rows ; i++ ) {
+			int slot = slot_[i];
+			int from = other.slot_[i];
+			System.arraycopy(other.rows_,from * words_,rows_,slot * words_,words_);
+			System.arraycopy(other.colors_,from * boardWidth_,colors_,
+			                 slot * boardWidth_,boardWidth_);
+			rowFill_[slot] = other.rowFill_[from];
+			contents_[slot] = other.contents_[from];
+		}
+		for ( int i = rows ; i <= highestRow_ ; i++ ) {
+			emptySlot(slot_[i]);
+		}
+		System.arraycopy(other.columnHeight_,0,columnHeight_,0,boardWidth_);
+		highestRow_ = other.highestRow_;
+		blockCount_ = other.blockCount_;
+		hash_ = other.hash_;
+		// storage only reaches the top of the stack, and no row above it can be
+		// full
+		dirtyLow_ = other.dirtyLow_;
+		dirtyHigh_ = Math.min(other.dirtyHigh_,highestRow_);
+		if ( palette_.length < other.paletteSize_ ) {
+			palette_ = new int[other.palette_.length];
+		}
+		System.arraycopy(other.palette_,0,palette_,0,other.paletteSize_);
+		paletteSize_ = other.paletteSize_;
+		snapshot_ = other.snapshot_;
+	}
+
+	/**
+	 * Gets the number of bytes write puts for the current contents.
+	 * 
+	 * @return The number of bytes.
+	 */
+	int getStateSize () {
+		return 2 * Integer.BYTES
+		    + (highestRow_ + 1) * (words_ * Long.BYTES + boardWidth_)
+		    + paletteSize_ * Integer.BYTES;
+	}
+
+	/**
+	 * Writes the board's contents to a buffer: the height of the stack, the
+	 * occupancy mask of each row of the stack as one long per 64 columns, the
+	 * palette index of each of its cells, then the palette.
+	 * 
+	 * @param buffer
+	 *          The buffer, with at least getStateSize() bytes remaining.
+	 */
+	void write ( ByteBuffer buffer ) {
+		int stackHeight = highestRow_ + 1;
+		buffer.putInt(stackHeight);
+		LongBuffer masks = buffer.asLongBuffer();
+		for ( int i = 0 ; i < stackHeight ; i++ ) {
+			masks.put(rows_,slot_[i] * words_,words_);
+		}
+		buffer.position(buffer.position() + stackHeight * words_ * Long.BYTES);
+		for ( int i = 0 ; i < stackHeight ; i++ ) {
+			buffer.put(colors_,slot_[i] * boardWidth_,boardWidth_);
+		}
+		buffer.putInt(paletteSize_);
+		buffer.asIntBuffer().put(palette_,0,paletteSize_);
+		buffer.position(buffer.position() + paletteSize_ * Integer.BYTES);
+	}
+
+	/**
+	 * Replaces the board's contents with ones written by write, for a board of
+	 * the same width. The row table is reset so that the rows are read in bulk
+	 * straight into the board's arrays, and the counts, column heights and hash
+	 * are rebuilt from the masks.
+	 * 
+	 * @param buffer
+	 *          The buffer, positioned at the contents.
+	 */
+	void read ( ByteBuffer buffer ) {
+		int stackHeight = buffer.getInt();
+		if ( stackHeight < 0 || stackHeight > boardHeight_ ) {
+			throw new IllegalArgumentException("The contents do not fit the board.");
+		}
+		clear();
+		ensureCapacity(stackHeight);
+		// every slot is empty now, so any of them can hold any row
+		for ( int i = 0 ; i < slot_.length ; i++ ) {
+			slot_[i] = i;
+		}
+		buffer.asLongBuffer().get(rows_,0,stackHeight * words_);
+		buffer.position(buffer.position() + stackHeight * words_ * Long.BYTES);
+		buffer.get(colors_,0,stackHeight * boardWidth_);
+		int paletteSize = buffer.getInt();
+		if ( paletteSize < 0 || paletteSize > MAX_COLORS ) {
+			throw new IllegalArgumentException("The palette is too large.");
+		}
+		if ( palette_.length < paletteSize ) {
+			palette_ = new int[paletteSize];
+		}
+		buffer.asIntBuffer().get(palette_,0,paletteSize);
+		buffer.position(buffer.position() + paletteSize * Integer.BYTES);
+		paletteSize_ = paletteSize;
+		// the bits past the last column, in each row's last word
+		long outside = boardWidth_ % Long.SIZE == 0 ? 0 : -1L << boardWidth_;
+		for ( int i = 0 ; i < stackHeight ; i++ ) {
+			if ( words_ > 0 && (rows_[(i + 1) * words_ - 1] & outside) != 0 ) {
+				throw new IllegalArgumentException("The contents do not fit the board.");
+			}
+			for ( int word = 0 ; word < words_ ; word++ ) {
+				long mask = rows_[i * words_ + word];
+				rowFill_[i] += Long.bitCount(mask);
+				for ( long cells = mask ; cells != 0 ; cells &= cells - 1 ) {
+					int col = word * Long.SIZE + Long.numberOfTrailingZeros(cells);
+					if ( (colors_[i * boardWidth_ + col] & 0xFF) >= paletteSize ) {
+						throw new IllegalArgumentException("A block's color is not in the palette.");
+					}
+					columnHeight_[col] = i + 1;
+				}
+			}
+			blockCount_ += rowFill_[i];
+			contents_[i] = computeContents(i);
+			if ( rowFill_[i] != 0 ) {
+				highestRow_ = i;
 			}
 		}
-		return filledBlocks;
+		hash_ = computeHash();
+		// any row read may be full
+		dirtyLow_ = 0;
+		dirtyHigh_ = highestRow_;
+	}
+
+	/**
+	 * Gets the palette index of a color, adding the color to the palette if it
+	 * is not there yet.
+	 * 
+	 * @param color
+	 *          The desired color.
+	 * @return The palette index of the color.
+	 */
+	private int colorIndex ( int color ) {
+		for ( int i = 0 ; i < paletteSize_ ; i++ ) {
+			if ( palette_[i] == color ) {
+				return i;
+			}
+		}
+		if ( paletteSize_ == MAX_COLORS ) {
+			throw new IllegalStateException("A board cannot hold more than "
+			    + MAX_COLORS + " distinct colors.");
+		}
+		if ( paletteSize_ == palette_.length ) {
+			palette_ = Arrays.copyOf(palette_,palette_.length * 2);
+		}
+		palette_[paletteSize_] = color;
+		return paletteSize_++;
 	}
 
 	/**
@@ -249,14 +770,27 @@ public class Board {
 	 *          2D array of Pieces.
 	 */
 	Board ( Piece[][] pieces ) {
-		boardWidth_ = pieces[0].length;
-		boardHeight_ = pieces.length;
-		pieces_ = new Piece[pieces.length][pieces[0].length];
+		this(pieces[0].length,pieces.length);
+		// every row is in the slot with its index
+		ensureCapacity(pieces.length);
 		for ( int i = 0 ; i < pieces.length ; i++ ) {
 			for ( int j = 0 ; j < pieces[0].length ; j++ ) {
-				pieces_[i][j] = pieces[i][j];
+				if ( pieces[i][j] != null ) {
+					rows_[i * words_ + (j >>> 6)] |= 1L << j;
+					rowFill_[i]++;
+					blockCount_++;
+					columnHeight_[j] = i + 1;
+					highestRow_ = i;
+					colors_[i * boardWidth_ + j] =
+					    (byte) colorIndex(pieces[i][j].getPieceColor());
+				}
 			}
+			contents_[i] = computeContents(i);
 		}
+		hash_ = computeHash();
+		// any row of the array up to the top of the stack may be full
+		dirtyLow_ = 0;
+		dirtyHigh_ = highestRow_;
 	}
 
 }
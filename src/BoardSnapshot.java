@@ -0,0 +1,131 @@
+/**
+ * An immutable copy of a board's contents at one moment. Only the rows up to
+ * the top of the stack are copied, as row masks and palette indices, so a
+ * snapshot is small and cheap to take, and any thread may read it without
+ * locking while the board keeps changing.
+ * 
+ * @author Sayf Elhawary
+ */
+public class BoardSnapshot {
+
+	private final int boardWidth_, boardHeight_; // The board's dimensions.
+
+	private final int words_; // The number of longs in each row's occupancy
+	                          // mask.
+
+	private final int stackHeight_; // The number of rows copied. Rows above
+	                                 // them are empty.
+
+	private final long[] rows_; // The occupancy mask of each row of the stack,
+	                            // words_ longs per row.
+
+	private final byte[] colors_; // The palette index of each cell of the stack,
+	                              // row by row.
+
+	private final int[] palette_; // The colors the indices refer to.
+
+	/**
+	 * Creates a snapshot from a board's arrays. The rows of the stack are
+	 * copied.
+	 * 
+	 * @param boardWidth
+	 *          The board's width.
+	 * @param boardHeight
+	 *          The board's height.
+	 * @param words
+	 *          The number of longs in each row's occupancy mask.
+	 * @param slots
+	 *          The storage slot of each of the board's rows.
+	 * @param rows
+	 *          The occupancy masks of the board's slots.
+	 * @param colors
+	 *          The palette indices of the board's cells, slot by slot.
+	 * @param palette
+	 *          The board's palette.
+	 * @param stackHeight
+	 *          The number of rows to copy: one more than the highest row
+	 *          containing a block.
+	 * @param paletteSize
+	 *          The number of colors in the palette.
+	 */
+	BoardSnapshot ( int boardWidth, int boardHeight, int words, int[] slots,
+	                long[] rows, byte[] colors, int[] palette, int stackHeight,
+	                int paletteSize ) {
+		boardWidth_ = boardWidth;
+		boardHeight_ = boardHeight;
+		words_ = words;
+		stackHeight_ = stackHeight;
+		rows_ = new long[stackHeight * words];
+		colors_ = new byte[stackHeight * boardWidth];
+		// the rows are copied in order, out of the slots they are stored in
+		for ( int i = 0 ; i < stackHeight ; i++ ) {
+			System.arraycopy(rows,slots[i] * words,rows_,i * words,words);
+			System.arraycopy(colors,slots[i] * boardWidth,colors_,i * boardWidth,
+			                 boardWidth);
+		}
+		palette_ = new int[paletteSize];
+		System.arraycopy(palette,0,palette_,0,paletteSize);
+	}
+
+	/**
+	 * Gets the board's width.
+	 * 
+	 * @return The board's width.
+	 */
+	public int getBoardWidth () {
+		return boardWidth_;
+	}
+
+	/**
+	 * Gets the board's height.
+	 * 
+	 * @return The board's height.
+	 */
+	public int getBoardHeight () {
+		return boardHeight_;
+	}
+
+	/**
+	 * Gets the height of the stack: one more than the highest row containing a
+	 * block.
+	 * 
+	 * @return The height of the stack, or 0 if the board was empty.
+	 */
+	public int getStackHeight () {
+		return stackHeight_;
+	}
+
+	/**
+	 * Gets whether a particular position on the board was empty.
+	 * 
+	 * @param row
+	 *          The desired row. row >=0 and less than the board's height.
+	 * @param col
+	 *          The desired column. col >=0 and less than the board's width.
+	 * @return True if the position was empty, false otherwise.
+	 */
+	public boolean isEmpty ( int row, int col ) {
+		if ( row < 0 || col < 0 || row >= boardHeight_ || col >= boardWidth_ ) {
+			throw new IllegalArgumentException("The index is out of bounds. Input a number more than or equal to zero.");
+		}
+		return row >= stackHeight_
+		    || (rows_[row * words_ + (col >>> 6)] & (1L << col)) == 0;
+	}
+
+	/**
+	 * Gets the color of the block at a particular position.
+	 * 
+	 * @param row
+	 *          The desired row. row >=0 and less than the board's height.
+	 * @param col
+	 *          The desired column. col >=0 and less than the board's width.
+	 * @return The block's color, as 0xRRGGBB, or -1 if the position was empty.
+	 */
+	public int getPositionColor ( int row, int col ) {
+		if ( isEmpty(row,col) ) {
+			return -1;
+		}
+		return palette_[colors_[row * boardWidth_ + col] & 0xFF];
+	}
+
+}
@@ -1,5 +1,3 @@
-import javafx.scene.paint.Color;
-
 /**
  * Tester for Board.
  * 
@@ -13,7 +11,7 @@ public class BoardTester {
 		System.out.println();
 		String[] orientations1 = { "0 0  0 1  0 2", "0 0  1 0  2 0", "2 0  1 0  0 0", "0 2  0 1  0 0" };
 		String[] orientations2 = { "0 3  0 4  0 5"};
-		Color color = Color.WHITE;
+		int color = 0xFFFFFF; // white
 		Polyomino polyomino = new Polyomino(orientations1, color);
 		Polyomino polyomino2 = new Polyomino(orientations2, color);
 		int orientation = 3;
@@ -221,6 +219,26 @@ public class BoardTester {
 			System.out.println();
 		}
 
+		{
+			// name: getDropRow - under an overhang
+			// starting state: board with a piece at row 5
+			// input: piece
+			// row - 2 and 9
+			// col - 1
+			// expected result: 0 below the overhang, 6 above it
+			System.out.println("getDropRow - under an overhang");
+			System.out.println();
+			Board board = new Board(6, 10);
+			board.addPiece(new Piece(polyomino, 0), 5, 0);
+			Piece piece = new Piece(polyomino, 1);
+			if (board.getDropRow(piece, 2, 1) == 0 && board.getDropRow(piece, 9, 1) == 6) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
 		{
 			// name: clearRows
 			// starting state: board
@@ -244,6 +262,204 @@ public class BoardTester {
 			}
 			System.out.println();
 		}
+		{
+			// name: clearRows - rows above shift down
+			// starting state: board
+			// input: 
+			// expected result: true
+			System.out.println("clearRows - rows above shift down");
+			System.out.println();
+			Piece[][] pieces = new Piece[10][6];
+			Board board = new Board(pieces);
+			Piece piece1 = new Piece(polyomino, orientation2);
+			Piece piece2 = new Piece(polyomino2, orientation2);
+			Piece piece3 = new Piece(polyomino, 1);
+			board.addPiece(piece1, 0, 0);
+			board.addPiece(piece2, 0, 0);
+			board.addPiece(piece3, 1, 4);
+			int clearedRows = board.clearRows();
+			if (clearedRows == 1 && !board.isEmpty(0, 4) && !board.isEmpty(2, 4) && board.isEmpty(3, 4)
+					&& board.isEmpty(0, 0) && board.getPositionColor(0, 4) == color) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+		{
+			// name: getSnapshot - unaffected by later changes
+			// starting state: board with one piece
+			// input: another piece added after the snapshot
+			// expected result: true
+			System.out.println("getSnapshot - unaffected by later changes");
+			System.out.println();
+			Board board = new Board(6, 10);
+			board.addPiece(new Piece(polyomino, 1), 0, 2);
+			BoardSnapshot snapshot = board.getSnapshot();
+			boolean test = board.getSnapshot() == snapshot && snapshot.getStackHeight() == 3
+					&& !snapshot.isEmpty(2, 2) && snapshot.getPositionColor(0, 2) == color
+					&& snapshot.getPositionColor(0, 3) == -1 && snapshot.isEmpty(9, 5);
+			board.addPiece(new Piece(polyomino2, orientation2), 0, 0);
+			test = test && board.getSnapshot() != snapshot && snapshot.isEmpty(0, 3) && !board.getSnapshot().isEmpty(0, 3);
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+		{
+			// name: getHash - same blocks, same hash
+			// starting state: two boards
+			// input: the same blocks, reached in different orders and through a
+			// cleared row
+			// expected result: true
+			System.out.println("getHash - same blocks, same hash");
+			System.out.println();
+			Board board1 = new Board(6, 10);
+			Board board2 = new Board(6, 10);
+			Piece piece1 = new Piece(polyomino, orientation2);
+			Piece piece2 = new Piece(polyomino2, orientation2);
+			Piece piece3 = new Piece(polyomino, 1);
+			board1.addPiece(piece3, 0, 4);
+			board2.addPiece(piece1, 0, 0);
+			board2.addPiece(piece2, 0, 0);
+			board2.addPiece(piece3, 1, 4);
+			boolean test = board1.getHash() != board2.getHash();
+			board2.clearRows();
+			test = test && board1.getHash() == board2.getHash() && board1.getHash() != 0;
+			board1.clear();
+			test = test && board1.getHash() == new Board(6, 10).getHash();
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+		{
+			// name: clearRows - wide and tall board
+			// starting state: 999 by 5000 board
+			// input: a full bottom row, a piece across the first and second
+			// words of row 1, and a piece high up the board
+			// expected result: the bottom row cleared and the rest moved down a
+			// row
+			System.out.println("clearRows - wide and tall board");
+			System.out.println();
+			Board board = new Board(999, 5000);
+			Piece piece1 = new Piece(polyomino, orientation2);
+			for (int i = 0; i < 999; i += 3) {
+				board.addPiece(piece1, 0, i);
+			}
+			board.addPiece(piece1, 1, 62);
+			board.addPiece(piece1, 4000, 996);
+			boolean test = !board.canPlace(piece1, 1, 63) && board.canPlace(piece1, 1, 65)
+					&& board.getDropRow(piece1, 4999, 996) == 4001;
+			int clearedRows = board.clearRows();
+			test = test && clearedRows == 1 && !board.isEmpty(0, 62) && !board.isEmpty(0, 64) && board.isEmpty(0, 65)
+					&& board.isEmpty(0, 61) && !board.isEmpty(3999, 998) && board.isEmpty(4000, 998)
+					&& board.getPositionColor(0, 63) == color && board.getHash() == board.computeHash();
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+		{
+			// name: copyFrom - tall board built from an array
+			// starting state: 10 by 200 board with one block, built from an
+			// array, and an empty board of the same size
+			// input: the first board copied into the second, then a second copy
+			// with a full bottom row
+			// expected result: no rows cleared from the first copy, and the full
+			// row cleared from the second
+			System.out.println("copyFrom - tall board built from an array");
+			System.out.println();
+			Piece piece1 = new Piece(polyomino, orientation2);
+			Piece[][] pieces = new Piece[200][10];
+			pieces[0][0] = piece1;
+			Board board = new Board(10, 200);
+			board.copyFrom(new Board(pieces));
+			boolean test = board.clearRows() == 0 && !board.isEmpty(0, 0) && board.getStackHeight() == 1;
+			for (int i = 1; i < 10; i++) {
+				pieces[0][i] = piece1;
+			}
+			pieces[1][5] = piece1;
+			board.copyFrom(new Board(pieces));
+			test = test && board.clearRows() == 1 && !board.isEmpty(0, 5) && board.isEmpty(0, 0)
+					&& board.getStackHeight() == 1 && board.getHash() == board.computeHash();
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+		{
+			// name: getRowFill and getStackHeight - adds and clears
+			// starting state: empty 6 by 10 board
+			// input: a horizontal piece in row 0, a vertical piece in rows 1 to 3,
+			// then a piece completing row 0, and clearRows
+			// expected result: the fill of each row and the stack height after
+			// every step, with the rows above the cleared one moved down
+			System.out.println("getRowFill and getStackHeight - adds and clears");
+			System.out.println();
+			Board board = new Board(6, 10);
+			Piece piece1 = new Piece(polyomino, orientation2);
+			Piece piece2 = new Piece(polyomino2, orientation2);
+			Piece piece3 = new Piece(polyomino, 1);
+			boolean test = board.getStackHeight() == 0 && board.getRowFill(0) == 0;
+			board.addPiece(piece1, 0, 0);
+			test = test && board.getStackHeight() == 1 && board.getRowFill(0) == 3 && board.getRowFill(1) == 0;
+			board.addPiece(piece3, 1, 4);
+			test = test && board.getStackHeight() == 4 && board.getRowFill(1) == 1 && board.getRowFill(3) == 1
+					&& board.getRowFill(4) == 0;
+			board.addPiece(piece2, 0, 0);
+			test = test && board.getRowFill(0) == 6 && board.getBlockCount() == 9;
+			int clearedRows = board.clearRows();
+			test = test && clearedRows == 1 && board.getStackHeight() == 3 && board.getRowFill(0) == 1
+					&& board.getRowFill(2) == 1 && board.getRowFill(3) == 0 && board.getBlockCount() == 3;
+			board.clear();
+			test = test && board.getStackHeight() == 0 && board.getRowFill(0) == 0 && board.getBlockCount() == 0;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+		{
+			// name: clearRows - only rows added to since the last call
+			// starting state: 6 by 10 board built from an array with a full
+			// bottom row and a block above it
+			// input: clearRows, a piece that fills no row and clearRows, then a
+			// piece completing row 1 and clearRows
+			// expected result: the array's full row cleared first, nothing the
+			// second time, and the completed row the third time
+			System.out.println("clearRows - only rows added to since the last call");
+			System.out.println();
+			Piece piece1 = new Piece(polyomino, orientation2);
+			Piece piece2 = new Piece(polyomino2, orientation2);
+			Piece[][] pieces = new Piece[10][6];
+			for (int i = 0; i < 6; i++) {
+				pieces[0][i] = piece1;
+			}
+			pieces[1][0] = piece1;
+			Board board = new Board(pieces);
+			boolean test = board.clearRows() == 1 && board.getStackHeight() == 1 && !board.isEmpty(0, 0);
+			board.addPiece(piece2, 1, 0);
+			test = test && board.clearRows() == 0 && board.getRowFill(1) == 3;
+			board.addPiece(piece1, 1, 0);
+			test = test && board.clearRows() == 1 && board.getStackHeight() == 1 && board.getRowFill(0) == 1
+					&& board.clearRows() == 0;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
 	}
 
 	/**
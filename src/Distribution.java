@@ -0,0 +1,229 @@
+/**
+ * A summary of a distribution of non-negative values: count, mean, standard
+ * deviation, extremes and a log-linear histogram for percentiles. Every power
+ * of two is split into 16 buckets, so percentiles are within about 6%. A
+ * distribution is not thread-safe; parallel producers each keep their own and
+ * combine them with addAll.
+ * 
+ * @author Sayf Elhawary
+ */
+public class Distribution {
+
+	private static final int SUB_BITS = 4; // Each power of two is split into
+	                                       // 2^SUB_BITS buckets.
+
+	private static final int SUB_BUCKETS = 1 << SUB_BITS; // Buckets per power of
+	                                                      // two.
+
+	static final int NUM_BUCKETS =
+	    SUB_BUCKETS + (Long.SIZE - 1 - SUB_BITS) * SUB_BUCKETS; // Enough buckets
+	                                                            // for any long.
+
+	private long count_; // The number of values. count_ >= 0.
+
+	private long min_, max_; // The smallest and largest values.
+
+	private double sum_, sumSquares_; // The sum of the values and of their
+	                                  // squares.
+
+	private long[] buckets_; // The number of values in each histogram bucket.
+
+	/**
+	 * Creates an empty distribution.
+	 */
+	public Distribution () {
+		count_ = 0;
+		min_ = Long.MAX_VALUE;
+		max_ = Long.MIN_VALUE;
+		sum_ = 0;
+		sumSquares_ = 0;
+		buckets_ = new long[NUM_BUCKETS];
+	}
+
+	/**
+	 * Creates a distribution from its summary, such as one collected by a
+	 * Histogram.
+	 * 
+	 * @param count
+	 *          The number of values.
+	 * @param min
+	 *          The smallest value.
+	 * @param max
+	 *          The largest value.
+	 * @param sum
+	 *          The sum of the values.
+	 * @param sumSquares
+	 *          The sum of the squares of the values.
+	 * @param buckets
+	 *          The number of values in each histogram bucket, as laid out by
+	 *          bucketIndex. The array is not copied.
+	 */
+	Distribution ( long count, long min, long max, double sum,
+	               double sumSquares, long[] buckets ) {
+		count_ = count;
+		min_ = min;
+		max_ = max;
+		sum_ = sum;
+		sumSquares_ = sumSquares;
+		buckets_ = buckets;
+	}
+
+	/**
+	 * Adds a value to the distribution.
+	 * 
+	 * @param value
+	 *          The value. value >= 0.
+	 */
+	public void add ( long value ) {
+		if ( value < 0 ) {
+			throw new IllegalArgumentException("The value cannot be negative.");
+		}
+		count_++;
+		min_ = Math.min(min_,value);
+		max_ = Math.max(max_,value);
+		sum_ += value;
+		sumSquares_ += (double) value * value;
+		buckets_[bucketIndex(value)]++;
+	}
+
+	/**
+	 * Adds all of the values of another distribution to this one.
+	 * 
+	 * @param other
+	 *          The distribution to add.
+	 */
+	public void addAll ( Distribution other ) {
+		count_ += other.count_;
+		min_ = Math.min(min_,other.min_);
+		max_ = Math.max(max_,other.max_);
+		sum_ += other.sum_;
+		sumSquares_ += other.sumSquares_;
+		for ( int i = 0 ; i < buckets_.length ; i++ ) {
+			buckets_[i] += other.buckets_[i];
+		}
+	}
+
+	/**
+	 * Gets the number of values.
+	 * 
+	 * @return The number of values.
+	 */
+	public long getCount () {
+		return count_;
+	}
+
+	/**
+	 * Gets the smallest value.
+	 * 
+	 * @return The smallest value, or 0 if there are no values.
+	 */
+	public long getMin () {
+		return count_ == 0 ? 0 : min_;
+	}
+
+	/**
+	 * Gets the largest value.
+	 * 
+	 * @return The largest value, or 0 if there are no values.
+	 */
+	public long getMax () {
+		return count_ == 0 ? 0 : max_;
+	}
+
+	/**
+	 * Gets the sum of the values.
+	 * 
+	 * @return The sum of the values.
+	 */
+	public double getSum () {
+		return sum_;
+	}
+
+	/**
+	 * Gets the mean of the values.
+	 * 
+	 * @return The mean, or 0 if there are no values.
+	 */
+	public double getMean () {
+		return count_ == 0 ? 0 : sum_ / count_;
+	}
+
+	/**
+	 * Gets the standard deviation of the values.
+	 * 
+	 * @return The standard deviation, or 0 if there are no values.
+	 */
+	public double getStandardDeviation () {
+		if ( count_ == 0 ) {
+			return 0;
+		}
+		double mean = getMean();
+		return Math.sqrt(Math.max(0,sumSquares_ / count_ - mean * mean));
+	}
+
+	/**
+	 * Gets an upper bound for a percentile of the values. The bound is the top of
+	 * the histogram bucket the percentile falls in, capped at the largest value.
+	 * 
+	 * @param percentile
+	 *          The desired percentile. 0 <= percentile <= 100.
+	 * @return The upper bound, or 0 if there are no values.
+	 */
+	public long getPercentile ( double percentile ) {
+		if ( percentile < 0 || percentile > 100 ) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+		}
+		if ( count_ == 0 ) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100 * count_);
+		long seen = 0;
+		for ( int i = 0 ; i < buckets_.length ; i++ ) {
+			seen += buckets_[i];
+			if ( seen >= rank && seen > 0 ) {
+				return Math.min(bucketTop(i),max_);
+			}
+		}
+		return max_;
+	}
+
+	/**
+	 * Gets the histogram bucket a value falls in.
+	 * 
+	 * @param value
+	 *          The value. value >= 0.
+	 * @return The index of the bucket.
+	 */
+	static int bucketIndex ( long value ) {
+		if ( value < SUB_BUCKETS ) {
+			return (int) value;
+		}
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Gets the largest value that falls in a histogram bucket.
+	 * 
+	 * @param index
+	 *          The index of the bucket.
+	 * @return The largest value in the bucket.
+	 */
+	private static long bucketTop ( int index ) {
+		if ( index < SUB_BUCKETS ) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	@Override
+	public String toString () {
+		return String.format("mean %.1f (sd %.1f), min %d, p50 <= %d, p90 <= %d, p99 <= %d, max %d",
+		                     getMean(),getStandardDeviation(),getMin(),
+		                     getPercentile(50),getPercentile(90),
+		                     getPercentile(99),getMax());
+	}
+
+}
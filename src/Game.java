@@ -1,4 +1,5 @@
-import javafx.scene.paint.Color;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
 
 /**
  * Game logic for Omino!.
@@ -7,9 +8,17 @@ import javafx.scene.paint.Color;
  */
 public class Game extends OminoSubject {
 
-	private static final int BOARD_HEIGHT = 30; // The board's height, in blocks.
+	static final int DEFAULT_BOARD_HEIGHT = 30; // The board's default height,
+	                                            // in blocks.
 
-	private static final int BOARD_WIDTH = 15; // The board's height, in blocks.
+	static final int DEFAULT_BOARD_WIDTH = 15; // The board's default width, in
+	                                           // blocks.
+
+	private static final long STATE_KEY_SEED = 0x5EED0F0A11D0L; // The seed of
+	                                                          // the piece keys.
+
+	private static final int LOOKAHEAD = 5; // The number of upcoming pieces that
+	                                        // can be previewed.
 
 	private static final int PIECE_POINTS = 10; // The points earned for landing a
 	                                            // piece.
@@ -40,15 +49,39 @@ public class Game extends OminoSubject {
 	        "0 1  1 1  2 1  1 0" } };
 	// The polyomino definitions.
 
-	private static final Color[] POLYOMINO_COLORS =
-	    { Color.BLUE, Color.ORANGE, Color.RED, Color.GREEN, Color.LIGHTBLUE,
-	      Color.YELLOW, Color.PURPLE, Color.DARKBLUE, Color.ORANGERED }; // Polyomino's
-	                                                                     // colors.
+	private static final int[] POLYOMINO_COLORS =
+	    { 0x0000FF, 0xFFA500, 0xFF0000, 0x008000, 0xADD8E6, 0xFFFF00, 0x800080,
+	      0x00008B, 0xFF4500 }; // Polyomino's colors: blue, orange, red, green,
+	                            // light blue, yellow, purple, dark blue and
+	                            // orange red.
+
+	private static final Histogram[] MOVE_TIMES =
+	    new Histogram[Action.values().length]; // The time movePiece takes for
+	                                           // each action.
+
+	private static final Histogram DROP_ROW_TIMES =
+	    Metrics.histogram("Board.getDropRow"); // The time the game board's
+	                                           // getDropRow takes.
+
+	private static final Histogram CLEAR_ROWS_TIMES =
+	    Metrics.histogram("Board.clearRows"); // The time the game board's
+	                                          // clearRows takes.
+
+	static {
+		for ( Action action : Action.values() ) {
+			MOVE_TIMES[action.ordinal()] =
+			    Metrics.histogram("Game.movePiece." + action);
+		}
+	}
 
 	private Board board_; // The board
 
+	private int boardWidth_, boardHeight_; // The board's dimensions, in blocks.
+
 	private Polyomino[] polyomino_; // The polyominos.
 
+	private PieceQueue pieces_; // The upcoming pieces.
+
 	private int currentScore_; // The current score.
 
 	private int piecesPlayed_; // The number of pieces played.
@@ -57,6 +90,9 @@ public class Game extends OminoSubject {
 
 	private Piece currentPiece_; // The current piece.
 
+	private int currentPolyomino_; // The index of the current piece's
+	                               // polyomino, or -1 if there is no piece.
+
 	private int currentPieceRow_, currentPieceCol_; // The current position of the
 	                                                // current piece.
 
@@ -64,26 +100,85 @@ public class Game extends OminoSubject {
 
 	private boolean gameOver_; // Whether or not the game is over.
 
+	private ReplayWriter replay_; // The replay the game is recorded to, or null.
+
+	private long startedAt_; // The System.nanoTime() the game was started or
+	                         // loaded at.
+
+	private boolean snapshots_; // Whether a snapshot is published after every
+	                            // step.
+
+	private volatile GameSnapshot snapshot_; // The state as of the end of the
+	                                         // last step, for other threads, or
+	                                         // null if snapshots are off.
+
 	/**
-	 * Create a new Omino! game. The game must be started in order to play.
+	 * Create a new Omino! game where every piece is chosen uniformly at random.
+	 * The game must be started in order to play.
 	 */
 	public Game () {
+		this(SeededPieceGenerator.uniform(POLYOMINO_DEFINITIONS.length,
+		                                  new SplittableRandom().nextLong()));
+	}
+
+	/**
+	 * Create a new Omino! game whose pieces come from the desired generator. The
+	 * game must be started in order to play.
+	 * 
+	 * @param generator
+	 *          The source of the pieces. Its indices must be less than
+	 *          getNumPolyominoes().
+	 */
+	public Game ( PieceGenerator generator ) {
+		this(generator,DEFAULT_BOARD_WIDTH,DEFAULT_BOARD_HEIGHT);
+	}
+
+	/**
+	 * Create a new Omino! game on a board of the desired size, whose pieces come
+	 * from the desired generator. The game must be started in order to play.
+	 * 
+	 * @param generator
+	 *          The source of the pieces. Its indices must be less than
+	 *          getNumPolyominoes().
+	 * @param boardWidth
+	 *          The board's width, in blocks. boardWidth is at least as wide as
+	 *          every piece.
+	 * @param boardHeight
+	 *          The board's height, in blocks. boardHeight > 0.
+	 */
+	public Game ( PieceGenerator generator, int boardWidth, int boardHeight ) {
 		// initialize the instance variables
-		board_ = new Board(BOARD_WIDTH,BOARD_HEIGHT);
 		polyomino_ = new Polyomino[POLYOMINO_DEFINITIONS.length];
+		int widest = 0;
 		for ( int i = 0 ; i < POLYOMINO_DEFINITIONS.length ; i++ ) {
 			polyomino_[i] =
 			    new Polyomino(POLYOMINO_DEFINITIONS[i],POLYOMINO_COLORS[i]);
+			for ( int j = 0 ; j < polyomino_[i].getNumRotations() ; j++ ) {
+				widest = Math.max(widest,polyomino_[i].getPiece(j).getPieceWidth());
+			}
+		}
+		if ( boardWidth < widest || boardHeight <= 0 ) {
+			throw new IllegalArgumentException("The board must be at least "
+			    + widest + " blocks wide and 1 block high.");
 		}
+		boardWidth_ = boardWidth;
+		boardHeight_ = boardHeight;
+		board_ = new Board(boardWidth,boardHeight);
+		pieces_ = new PieceQueue(generator,LOOKAHEAD);
 		currentScore_ = 0;
 		piecesPlayed_ = 0;
 		clearedRows_ = 0;
 		currentPiece_ = null;
+		currentPolyomino_ = -1;
 		currentPieceRow_ = -1;
 		currentPieceCol_ = -1;
 		gameInProgress_ = false;
 		gameOver_ = false;
-		firePropertyChange(BOARD_PROPERTY); // change to board contents
+		replay_ = null;
+		snapshots_ = false;
+		snapshot_ = null;
+		// change to board contents
+		firePropertyChange(BOARD_PROPERTY,new RowRange(0,boardHeight_ - 1));
 		firePropertyChange(CURPIECE_PROPERTY); // change current piece (piece and/or
 		                                       // position)
 		firePropertyChange(SCORE_PROPERTY); // change to the score
@@ -93,6 +188,47 @@ public class Game extends OminoSubject {
 		                                      // cleared
 	}
 
+	/**
+	 * Gets an id of the polyominos pieces are chosen from. Games with different
+	 * polyominos or colors almost never have the same id.
+	 * 
+	 * @return The id.
+	 */
+	public static long getPieceSetId () {
+		long id = POLYOMINO_DEFINITIONS.length;
+		for ( int i = 0 ; i < POLYOMINO_DEFINITIONS.length ; i++ ) {
+			for ( String orientation : POLYOMINO_DEFINITIONS[i] ) {
+				id = SeededPieceGenerator.random(id,orientation.hashCode());
+			}
+			id = SeededPieceGenerator.random(id,POLYOMINO_COLORS[i]);
+		}
+		return id;
+	}
+
+	/**
+	 * Gets the number of polyominos pieces are chosen from.
+	 * 
+	 * @return The number of polyominos.
+	 */
+	public static int getNumPolyominoes () {
+		return POLYOMINO_DEFINITIONS.length;
+	}
+
+	/**
+	 * Gets one of the polyominos pieces are chosen from.
+	 * 
+	 * @param index
+	 *          The index of the polyomino. index >= 0 and index <
+	 *          getNumPolyominoes().
+	 * @return The polyomino.
+	 */
+	public Polyomino getPolyomino ( int index ) {
+		if ( index < 0 || index >= polyomino_.length ) {
+			throw new IllegalArgumentException("The index is out of bounds. Please try again.");
+		}
+		return polyomino_[index];
+	}
+
 	/**
 	 * Gets the score.
 	 * 
@@ -184,27 +320,149 @@ public class Game extends OminoSubject {
 		return currentPieceCol_;
 	}
 
+	/**
+	 * Gets the index of the current piece's polyomino.
+	 * 
+	 * @return The index of the polyomino, or -1 if there is no current piece.
+	 */
+	public int getCurrentPolyomino () {
+		return currentPolyomino_;
+	}
+
+	/**
+	 * Gets a key for the position a move is chosen in: the occupancy of the
+	 * board, the current piece's polyomino and its orientation. Orientations
+	 * with the same blocks are the same position. Equal positions always have
+	 * equal keys, and different ones almost never do.
+	 * 
+	 * @return The key.
+	 */
+	public long getStateKey () {
+		if ( currentPiece_ == null ) {
+			return board_.getHash();
+		}
+		// the polyomino and orientation pick a number from a fixed random
+		// sequence, which is mixed into the board's hash
+		return board_.getHash() ^ SeededPieceGenerator
+		    .random(STATE_KEY_SEED,currentPolyomino_ * 4L
+		        + polyomino_[currentPolyomino_]
+		            .getCanonicalRotation(currentPiece_.getOrientation()));
+	}
+
+	/**
+	 * Gets an upcoming piece, in its first orientation.
+	 * 
+	 * @param index
+	 *          How far ahead to look; 0 is the piece after the current one. index
+	 *          >= 0 and index < getLookahead().
+	 * @return The upcoming piece.
+	 */
+	public Piece getNextPiece ( int index ) {
+		return polyomino_[pieces_.peek(index)].getPiece(0);
+	}
+
+	/**
+	 * Gets an immutable snapshot of the game as of the end of the last step. It
+	 * may be called from any thread. A batch of changes is published after the
+	 * snapshot that includes them.
+	 * 
+	 * @return The snapshot, or null if snapshots are off.
+	 */
+	public GameSnapshot getSnapshot () {
+		return snapshot_;
+	}
+
+	/**
+	 * Sets whether a snapshot is published after every step. Snapshots copy
+	 * the board whenever it changes, so they are off unless something, such as
+	 * the UI, reads them. It is called on the game's thread, or before the game
+	 * is shared with other threads.
+	 * 
+	 * @param snapshots
+	 *          True to publish snapshots, starting with one of the current
+	 *          state, false to stop and drop the last one.
+	 */
+	public void setSnapshots ( boolean snapshots ) {
+		snapshots_ = snapshots;
+		if ( snapshots ) {
+			publish();
+		} else {
+			snapshot_ = null;
+		}
+	}
+
+	/**
+	 * Gets the index of an upcoming piece's polyomino.
+	 * 
+	 * @param index
+	 *          How far ahead to look; 0 is the piece after the current one. index
+	 *          >= 0 and index < getLookahead().
+	 * @return The index of the polyomino.
+	 */
+	public int getNextPolyomino ( int index ) {
+		return pieces_.peek(index);
+	}
+
+	/**
+	 * Gets the number of upcoming pieces that can be previewed.
+	 * 
+	 * @return The number of upcoming pieces that can be previewed.
+	 */
+	public int getLookahead () {
+		return pieces_.getLookahead();
+	}
+
+	/**
+	 * Records the game to a replay from now on. Recording can only start when
+	 * there is no current piece: before the game is started or just after it is
+	 * reset.
+	 * 
+	 * @param replay
+	 *          The replay to record to, or null to stop recording. The caller
+	 *          closes it.
+	 */
+	public void record ( ReplayWriter replay ) {
+		if ( replay != null ) {
+			if ( currentPiece_ != null ) {
+				throw new IllegalStateException("A replay can only start before the game does.");
+			}
+			replay.writeHeader(boardWidth_,boardHeight_,pieces_);
+		}
+		replay_ = replay;
+	}
+
 	/**
 	 * Resets the game state for a new game
 	 */
 	public void reset () {
-		board_.clear();
-		currentScore_ = 0;
-		piecesPlayed_ = 0;
-		clearedRows_ = 0;
-		currentPiece_ = null;
-		currentPieceRow_ = -1;
-		currentPieceCol_ = -1;
-		gameInProgress_ = false;
-		gameOver_ = false;
-		firePropertyChange(BOARD_PROPERTY); // change to board contents
-		firePropertyChange(CURPIECE_PROPERTY); // change current piece (piece and/or
-		                                       // position)
-		firePropertyChange(SCORE_PROPERTY); // change to the score
-		firePropertyChange(NUMPIECES_PROPERTY); // change to the number of pieces
-		                                        // played
-		firePropertyChange(NUMROWS_PROPERTY); // change to the number of rows
-		                                      // cleared
+		if ( replay_ != null ) {
+			replay_.writeEvent(ReplayWriter.RESET);
+		}
+		beginBatch();
+		try {
+			board_.clear();
+			currentScore_ = 0;
+			piecesPlayed_ = 0;
+			clearedRows_ = 0;
+			currentPiece_ = null;
+			currentPolyomino_ = -1;
+			currentPieceRow_ = -1;
+			currentPieceCol_ = -1;
+			gameInProgress_ = false;
+			gameOver_ = false;
+			// change to board contents
+			firePropertyChange(BOARD_PROPERTY,new RowRange(0,boardHeight_ - 1));
+			firePropertyChange(CURPIECE_PROPERTY); // change current piece (piece and/or
+			                                       // position)
+			firePropertyChange(SCORE_PROPERTY); // change to the score
+			firePropertyChange(NUMPIECES_PROPERTY); // change to the number of pieces
+			                                        // played
+			firePropertyChange(NUMROWS_PROPERTY); // change to the number of rows
+			                                      // cleared
+			publish();
+		} finally {
+			endBatch();
+		}
 	}
 
 	/**
@@ -212,18 +470,61 @@ public class Game extends OminoSubject {
 	 * piece at the top of the board
 	 */
 	public void start () {
-		gameInProgress_ = true;
-		startNewPiece();
+		if ( replay_ != null ) {
+			replay_.writeEvent(ReplayWriter.START);
+		}
+		beginBatch();
+		try {
+			gameInProgress_ = true;
+			startedAt_ = System.nanoTime();
+			startNewPiece();
+			publish();
+			if ( replay_ != null ) {
+				replay_.endStep(this);
+			}
+		} finally {
+			endBatch();
+		}
 	}
 
 	/**
 	 * Takes an action and moves the piece accordingly, including handling the
-	 * result of that movement.
+	 * result of that movement. When batching is on, all the resulting changes
+	 * are published as one event. When Metrics are on, the time taken,
+	 * including listeners run synchronously, is recorded for the action, along
+	 * with the time of the board's getDropRow and clearRows. Only the game's
+	 * own board is timed, so the bot's scratch boards do not drown it out.
 	 * 
 	 * @param action
 	 *          Action
 	 */
 	public void movePiece ( Action action ) {
+		long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+		if ( replay_ != null ) {
+			replay_.writeEvent(action.ordinal());
+		}
+		beginBatch();
+		try {
+			move(action);
+			publish();
+			if ( replay_ != null ) {
+				replay_.endStep(this);
+			}
+		} finally {
+			endBatch();
+		}
+		if ( start != 0 ) {
+			MOVE_TIMES[action.ordinal()].recordSince(start);
+		}
+	}
+
+	/**
+	 * Moves the piece for movePiece, within its batch of changes.
+	 * 
+	 * @param action
+	 *          Action
+	 */
+	private void move ( Action action ) {
 		if ( gameInProgress_ ) {
 			Piece newPiece = currentPiece_;
 			int newCol = currentPieceCol_;
@@ -235,8 +536,14 @@ public class Game extends OminoSubject {
 			} else if ( action == Action.DOWN ) {
 				newRow = currentPieceRow_ - 1;
 			} else if ( action == Action.DROP ) {
-				newRow =
-				    board_.getDropRow(currentPiece_,currentPieceRow_,currentPieceCol_);
+				// a piece that has just spawned is still above the top of the board
+				long dropStart = Metrics.isEnabled() ? System.nanoTime() : 0;
+				newRow = board_.getDropRow(currentPiece_,
+				                           Math.min(currentPieceRow_,boardHeight_ - 1),
+				                           currentPieceCol_);
+				if ( dropStart != 0 ) {
+					DROP_ROW_TIMES.recordSince(dropStart);
+				}
 			} else if ( action == Action.ROTATE ) {
 				newPiece = currentPiece_.getNextRotation();
 				newRow = currentPieceRow_ + Math
@@ -249,7 +556,7 @@ public class Game extends OminoSubject {
 
 			}
 
-			if ( newCol >= 0 && newCol < BOARD_WIDTH
+			if ( newCol >= 0 && newCol < boardWidth_
 			    && board_.canPlace(newPiece,newRow,newCol) ) {
 				currentPiece_ = newPiece;
 				currentPieceCol_ = newCol;
@@ -258,15 +565,37 @@ public class Game extends OminoSubject {
 				                                       // and/or position)
 			} else {
 				if ( action == Action.DOWN || action == Action.DROP ) {
-					currentScore_ += PIECE_POINTS + (BOARD_HEIGHT - currentPieceRow_);
+					PieceLockEvent event = new PieceLockEvent();
+					event.begin();
+					currentScore_ += PIECE_POINTS + (boardHeight_ - currentPieceRow_);
 					firePropertyChange(SCORE_PROPERTY); // change to the score
 					board_.addPiece(currentPiece_,currentPieceRow_,currentPieceCol_);
 					if ( currentPieceRow_
-					    + currentPiece_.getPieceHeight() > BOARD_HEIGHT ) {
+					    + currentPiece_.getPieceHeight() > boardHeight_ ) {
 						gameInProgress_ = false;
 					}
+					// clearing rows moves everything up to the top of the stack
+					int stackHeight = board_.getStackHeight();
+					LineClearEvent clear = new LineClearEvent();
+					clear.begin();
+					long clearStart = Metrics.isEnabled() ? System.nanoTime() : 0;
 					int clearedRows = board_.clearRows();
-					firePropertyChange(BOARD_PROPERTY); // change to board contents
+					if ( clearStart != 0 ) {
+						CLEAR_ROWS_TIMES.recordSince(clearStart);
+					}
+					clear.end();
+					if ( clearedRows > 0 && clear.shouldCommit() ) {
+						clear.rowsCleared = clearedRows;
+						clear.stackHeight = stackHeight;
+						clear.boardHeight = boardHeight_;
+						clear.commit();
+					}
+					int highestChange = clearedRows > 0 ? stackHeight - 1
+					    : Math.min(currentPieceRow_ + currentPiece_.getPieceHeight(),
+					               boardHeight_) - 1;
+					// change to board contents
+					firePropertyChange(BOARD_PROPERTY,
+					                   new RowRange(currentPieceRow_,highestChange));
 					clearedRows_ += clearedRows;
 					firePropertyChange(NUMROWS_PROPERTY); // change to the number of rows
 					                                      // cleared
@@ -277,11 +606,22 @@ public class Game extends OminoSubject {
 					}
 
 					firePropertyChange(SCORE_PROPERTY); // change to the score
+					event.end();
+					if ( event.shouldCommit() ) {
+						event.polyomino = currentPolyomino_;
+						event.row = currentPieceRow_;
+						event.col = currentPieceCol_;
+						event.rowsCleared = clearedRows;
+						event.stackHeight = board_.getStackHeight();
+						event.boardHeight = boardHeight_;
+						event.commit();
+					}
 					if ( gameOver_ == false ) {
 						startNewPiece();
 					}
 					if ( !gameInProgress_ ) {
 						gameOver_ = true;
+						commitGameOver();
 					}
 				}
 
@@ -291,21 +631,168 @@ public class Game extends OminoSubject {
 	}
 
 	/**
-	 * Randomly chooses a new piece, positions it so that it is centered just
-	 * above the top of the board, and increments the count of the number of
-	 * pieces played
+	 * Gets the source of the game's pieces.
+	 * 
+	 * @return The piece generator.
+	 */
+	PieceGenerator getGenerator () {
+		return pieces_.getGenerator();
+	}
+
+	/**
+	 * Gets the number of pieces dealt since the game was created, over all the
+	 * games played with it.
+	 * 
+	 * @return The number of pieces dealt.
+	 */
+	long getPiecesDealt () {
+		return pieces_.getTaken();
+	}
+
+	/**
+	 * Gets the number of bytes writeState puts for the current state.
+	 * 
+	 * @return The number of bytes.
+	 */
+	int getStateSize () {
+		return board_.getStateSize() + 6 * Integer.BYTES + 2
+		    + pieces_.getStateSize();
+	}
+
+	/**
+	 * Writes the game's state to a buffer: the board's contents, the counters,
+	 * the current piece's polyomino, orientation and position, the game's
+	 * status and the upcoming pieces. The piece generator is not written.
+	 * 
+	 * @param buffer
+	 *          The buffer, with at least getStateSize() bytes remaining.
+	 */
+	void writeState ( ByteBuffer buffer ) {
+		board_.write(buffer);
+		buffer.putInt(currentScore_);
+		buffer.putInt(piecesPlayed_);
+		buffer.putInt(clearedRows_);
+		buffer.putInt(currentPolyomino_);
+		buffer.put((byte) (currentPiece_ == null ? 0
+		    : currentPiece_.getOrientation()));
+		buffer.putInt(currentPieceRow_);
+		buffer.putInt(currentPieceCol_);
+		buffer.put((byte) ((gameInProgress_ ? 1 : 0) | (gameOver_ ? 2 : 0)));
+		pieces_.write(buffer);
+	}
+
+	/**
+	 * Replaces the game's state with one written by writeState, and publishes
+	 * the change to every property. The piece generator must already be
+	 * positioned after the upcoming pieces read.
+	 * 
+	 * @param buffer
+	 *          The buffer, positioned at the state.
+	 */
+	void readState ( ByteBuffer buffer ) {
+		beginBatch();
+		try {
+			board_.read(buffer);
+			currentScore_ = buffer.getInt();
+			piecesPlayed_ = buffer.getInt();
+			clearedRows_ = buffer.getInt();
+			int polyomino = buffer.getInt();
+			int orientation = buffer.get();
+			currentPieceRow_ = buffer.getInt();
+			currentPieceCol_ = buffer.getInt();
+			int status = buffer.get();
+			pieces_.read(buffer);
+			if ( polyomino < -1 || polyomino >= polyomino_.length
+			    || (polyomino >= 0 && (orientation < 0
+			        || orientation >= polyomino_[polyomino].getNumRotations())) ) {
+				throw new IllegalArgumentException("The current piece is not in the piece set.");
+			}
+			for ( int i = 0 ; i < pieces_.getLookahead() ; i++ ) {
+				if ( pieces_.peek(i) < 0 || pieces_.peek(i) >= polyomino_.length ) {
+					throw new IllegalArgumentException("An upcoming piece is not in the piece set.");
+				}
+			}
+			currentPolyomino_ = polyomino;
+			currentPiece_ =
+			    polyomino < 0 ? null : polyomino_[polyomino].getPiece(orientation);
+			gameInProgress_ = (status & 1) != 0;
+			gameOver_ = (status & 2) != 0;
+			startedAt_ = System.nanoTime();
+			// change to board contents
+			firePropertyChange(BOARD_PROPERTY,new RowRange(0,boardHeight_ - 1));
+			firePropertyChange(CURPIECE_PROPERTY); // change current piece (piece and/or
+			                                       // position)
+			firePropertyChange(SCORE_PROPERTY); // change to the score
+			firePropertyChange(NUMPIECES_PROPERTY); // change to the number of pieces
+			                                        // played
+			firePropertyChange(NUMROWS_PROPERTY); // change to the number of rows
+			                                      // cleared
+			publish();
+		} finally {
+			endBatch();
+		}
+	}
+
+	/**
+	 * Publishes a snapshot of the current state, if snapshots are on. The board
+	 * snapshot is shared with the previous one if the board has not changed.
+	 */
+	private void publish () {
+		if ( !snapshots_ ) {
+			return;
+		}
+		snapshot_ = new GameSnapshot(board_.getSnapshot(),currentPiece_,
+		                             currentPieceRow_,currentPieceCol_,
+		                             currentScore_,clearedRows_,piecesPlayed_,
+		                             gameInProgress_,gameOver_);
+	}
+
+	/**
+	 * Emits a GameOverEvent for the game that just ended.
+	 */
+	private void commitGameOver () {
+		GameOverEvent event = new GameOverEvent();
+		if ( event.shouldCommit() ) {
+			event.gameDuration = System.nanoTime() - startedAt_;
+			event.score = currentScore_;
+			event.clearedRows = clearedRows_;
+			event.piecesPlayed = piecesPlayed_;
+			event.stackHeight = board_.getStackHeight();
+			event.boardHeight = boardHeight_;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Takes the next piece from the queue, positions it so that it is centered
+	 * just above the top of the board, and increments the count of the number of
+	 * pieces played. Emits a PieceSpawnEvent.
 	 */
 	private void startNewPiece () {
-		Piece newPiece =
-		    new Piece(polyomino_[(int) (Math.random() * polyomino_.length)],0);
+		PieceSpawnEvent event = new PieceSpawnEvent();
+		event.begin();
+		currentPolyomino_ = pieces_.next();
+		if ( replay_ != null ) {
+			// the piece just prefetched, after the ones already recorded
+			replay_.writePiece(pieces_.peek(pieces_.getLookahead() - 1));
+		}
+		Piece newPiece = polyomino_[currentPolyomino_].getPiece(0);
 		currentPiece_ = newPiece;
-		currentPieceRow_ = BOARD_HEIGHT;
-		currentPieceCol_ = (BOARD_WIDTH - newPiece.getPieceWidth()) / 2;
+		currentPieceRow_ = boardHeight_;
+		currentPieceCol_ = (boardWidth_ - newPiece.getPieceWidth()) / 2;
 		piecesPlayed_++;
 		firePropertyChange(CURPIECE_PROPERTY); // change current piece (piece and/or
 		                                       // position)
 		firePropertyChange(NUMPIECES_PROPERTY); // change to the number of pieces
 		                                        // played
+		event.end();
+		if ( event.shouldCommit() ) {
+			event.polyomino = currentPolyomino_;
+			event.piecesPlayed = piecesPlayed_;
+			event.stackHeight = board_.getStackHeight();
+			event.boardHeight = boardHeight_;
+			event.commit();
+		}
 	}
 
 }
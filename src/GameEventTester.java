@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tester for the JDK Flight Recorder events of Game and Board.
+ *
+ * @author Sayf Elhawary
+ */
+public class GameEventTester {
+
+	public static void main(String[] args) throws IOException {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: events - bot game to game over
+			// starting state: recording with the omino events enabled
+			// input: a bot game with a fixed seed, played until it ends
+			// expected result: a spawn for every piece played, a lock for every
+			// piece but the last one dealt, line clears adding up to the rows
+			// cleared, and one game over with the final counters
+			System.out.println("events - bot game to game over");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 3));
+			PlacementBot bot = new PlacementBot();
+			Path file = Files.createTempFile("omino", ".jfr");
+			try (Recording recording = new Recording()) {
+				recording.enable("omino.PieceSpawn");
+				recording.enable("omino.PieceLock");
+				recording.enable("omino.LineClear");
+				recording.enable("omino.GameOver");
+				recording.start();
+				game.start();
+				for (int i = 0; i < 100000 && !game.getGameOver(); i++) {
+					Action action = bot.nextAction(game);
+					game.movePiece(action == null ? Action.DOWN : action);
+				}
+				// drop the rest of the game, so it ends quickly
+				while (!game.getGameOver()) {
+					game.movePiece(Action.DROP);
+					game.movePiece(Action.DOWN);
+				}
+				recording.stop();
+				recording.dump(file);
+			}
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			Files.delete(file);
+			int spawns = 0, locks = 0, clearedRows = 0, gameOvers = 0;
+			boolean test = true;
+			for (RecordedEvent event : events) {
+				String name = event.getEventType().getName();
+				if (name.startsWith("omino.")) {
+					test = test && event.getInt("boardHeight") == game.getBoardHeight();
+				}
+				if (name.equals("omino.PieceSpawn")) {
+					spawns++;
+				} else if (name.equals("omino.PieceLock")) {
+					locks++;
+				} else if (name.equals("omino.LineClear")) {
+					clearedRows += event.getInt("rowsCleared");
+				} else if (name.equals("omino.GameOver")) {
+					gameOvers++;
+					test = test && event.getInt("score") == game.getScore()
+					    && event.getInt("piecesPlayed") == game.getPiecesPlayed() && event.getLong("gameDuration") > 0;
+				}
+			}
+			test = test && spawns == game.getPiecesPlayed() && locks == game.getPiecesPlayed() - 1
+			    && clearedRows == game.getClearedRows() && gameOvers == 1;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+}
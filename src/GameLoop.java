@@ -0,0 +1,279 @@
+/**
+ * The single thread that owns a game. Everything that changes the game is
+ * submitted to the loop's ActionQueue and applied here in submission order, so
+ * the game is never changed by two threads at once and producers never take a
+ * lock.
+ * 
+ * The loop also applies gravity on a fixed timestep: every gravity period it
+ * moves the piece down one row. Ticks are scheduled from when they were due
+ * rather than from when the last one ran, so lateness does not accumulate; a
+ * loop that falls behind runs up to MAX_CATCH_UP overdue ticks back to back
+ * and skips any beyond that. Between ticks the loop sleeps until the next tick
+ * or new input, spinning for the last stretch so periods well under a
+ * millisecond stay accurate. How late each tick ran is recorded as its jitter.
+ * 
+ * @author Sayf Elhawary
+ */
+public class GameLoop implements Runnable {
+
+	private Game game_; // The game the loop owns.
+
+	private ActionQueue queue_; // The moves and commands waiting to be applied.
+
+	private Thread thread_; // The loop's thread, or null if it has not started.
+
+	public static final int MAX_CATCH_UP = 5; // The most overdue ticks run at
+	                                          // once.
+
+	private static final long SPIN_NANOS = 100_000; // Waits shorter than this
+	                                                // spin instead of parking.
+
+	private boolean running_; // Whether the loop keeps going. Only the loop's
+	                          // thread uses it.
+
+	private long gravityNanos_; // The time between gravity ticks, in
+	                            // nanoseconds, or 0 for no gravity. Only the
+	                            // loop's thread uses it.
+
+	private boolean paused_; // Whether gravity is paused. Only the loop's thread
+	                         // uses it.
+
+	private long nextTick_; // When the next gravity tick is due, from
+	                        // System.nanoTime(). Only the loop's thread uses it.
+
+	private Distribution jitter_; // How late each tick ran, in nanoseconds. Only
+	                              // the loop's thread uses it.
+
+	private volatile long ticks_, skippedTicks_; // The number of gravity ticks
+	                                             // run and skipped to catch up.
+
+	/**
+	 * Creates a loop for a game. The loop does nothing until it is started.
+	 * 
+	 * @param game
+	 *          The game. Once the loop starts, only the loop may change it.
+	 */
+	public GameLoop ( Game game ) {
+		game_ = game;
+		queue_ = new ActionQueue();
+		thread_ = null;
+		running_ = false;
+		gravityNanos_ = 0;
+		paused_ = false;
+		nextTick_ = 0;
+		jitter_ = new Distribution();
+		ticks_ = 0;
+		skippedTicks_ = 0;
+	}
+
+	/**
+	 * Gets the gravity period of a level, following the common guideline curve:
+	 * (0.8 - 0.007 (level - 1))^(level - 1) seconds per row. Level 1 is one
+	 * second, level 15 about 7 ms and level 20 about half a millisecond.
+	 * 
+	 * @param level
+	 *          The level. level >= 1.
+	 * @return The gravity period, in nanoseconds.
+	 */
+	public static long getGravityPeriod ( int level ) {
+		if ( level < 1 ) {
+			throw new IllegalArgumentException("Input a number more than zero.");
+		}
+		double seconds = Math.pow(0.8 - 0.007 * (level - 1),level - 1);
+		return Math.max(1,(long) (seconds * 1e9));
+	}
+
+	/**
+	 * Sets the time between gravity ticks. The change takes effect in order with
+	 * the moves submitted before it.
+	 * 
+	 * @param nanos
+	 *          The gravity period, in nanoseconds, or 0 for no gravity. nanos >=
+	 *          0.
+	 */
+	public void setGravity ( long nanos ) {
+		if ( nanos < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		queue_.submit( () -> {
+			gravityNanos_ = nanos;
+			nextTick_ = System.nanoTime() + nanos;
+		});
+	}
+
+	/**
+	 * Pauses or resumes gravity. Moves are still applied while gravity is
+	 * paused.
+	 * 
+	 * @param paused
+	 *          True to pause gravity, false to resume it.
+	 */
+	public void setPaused ( boolean paused ) {
+		queue_.submit( () -> {
+			if ( paused_ && !paused ) {
+				// resuming starts a fresh period rather than catching up on the pause
+				nextTick_ = System.nanoTime() + gravityNanos_;
+			}
+			paused_ = paused;
+		});
+	}
+
+	/**
+	 * Starts the loop's thread.
+	 */
+	public synchronized void start () {
+		if ( thread_ != null ) {
+			throw new IllegalStateException("The loop has already been started.");
+		}
+		running_ = true;
+		thread_ = new Thread(this,"omino-game");
+		thread_.setDaemon(true);
+		thread_.start();
+	}
+
+	/**
+	 * Stops the loop once everything submitted before the call has been
+	 * applied.
+	 */
+	public void stop () {
+		queue_.submit( () -> running_ = false);
+	}
+
+	/**
+	 * Waits for the loop's thread to finish after stop.
+	 * 
+	 * @throws InterruptedException
+	 *           If the waiting thread is interrupted.
+	 */
+	public void join () throws InterruptedException {
+		Thread thread;
+		synchronized ( this ) {
+			thread = thread_;
+		}
+		if ( thread != null ) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * Submits a move. It may be called from any thread.
+	 * 
+	 * @param action
+	 *          The move.
+	 */
+	public void submit ( Action action ) {
+		queue_.submit(action);
+	}
+
+	/**
+	 * Submits a command to run on the loop's thread, in order with the moves. It
+	 * may be called from any thread.
+	 * 
+	 * @param command
+	 *          The command.
+	 */
+	public void submit ( Runnable command ) {
+		queue_.submit(command);
+	}
+
+	/**
+	 * Gets the game the loop owns. Only the loop's thread, or commands it runs,
+	 * may change it.
+	 * 
+	 * @return The game.
+	 */
+	public Game getGame () {
+		return game_;
+	}
+
+	/**
+	 * Gets the time moves and commands waited before being applied. It may only
+	 * be read from a command or after the loop has stopped.
+	 * 
+	 * @return The input latencies, in nanoseconds.
+	 */
+	public Distribution getInputLatency () {
+		return queue_.getLatency();
+	}
+
+	/**
+	 * Gets how late gravity ticks ran. It may only be read from a command or
+	 * after the loop has stopped.
+	 * 
+	 * @return The tick jitter, in nanoseconds.
+	 */
+	public Distribution getJitter () {
+		return jitter_;
+	}
+
+	/**
+	 * Gets the number of gravity ticks run so far.
+	 * 
+	 * @return The number of ticks.
+	 */
+	public long getTicks () {
+		return ticks_;
+	}
+
+	/**
+	 * Gets the number of gravity ticks skipped because the loop fell more than
+	 * MAX_CATCH_UP ticks behind.
+	 * 
+	 * @return The number of skipped ticks.
+	 */
+	public long getSkippedTicks () {
+		return skippedTicks_;
+	}
+
+	@Override
+	public void run () {
+		while ( running_ ) {
+			queue_.drain(game_);
+			if ( !running_ ) {
+				break;
+			}
+			if ( paused_ || gravityNanos_ == 0 ) {
+				queue_.await(Long.MAX_VALUE);
+				continue;
+			}
+			long now = System.nanoTime();
+			long wait = nextTick_ - now;
+			if ( wait > SPIN_NANOS ) {
+				// wake up early enough to spin for the rest
+				queue_.await(wait - SPIN_NANOS);
+			} else if ( wait > 0 ) {
+				if ( queue_.isEmpty() ) {
+					Thread.onSpinWait();
+				}
+			} else {
+				tick(now);
+			}
+		}
+	}
+
+	/**
+	 * Runs the gravity ticks that are due.
+	 * 
+	 * @param now
+	 *          The current time, from System.nanoTime(). now >= nextTick_.
+	 */
+	private void tick ( long now ) {
+		int ran = 0;
+		while ( nextTick_ <= now && ran < MAX_CATCH_UP ) {
+			jitter_.add(now - nextTick_);
+			if ( game_.getGameProgress() ) {
+				game_.movePiece(Action.DOWN);
+			}
+			nextTick_ += gravityNanos_;
+			ran++;
+		}
+		ticks_ += ran;
+		if ( nextTick_ <= now ) {
+			// too far behind: drop the overdue ticks and keep to the schedule
+			long behind = (now - nextTick_) / gravityNanos_ + 1;
+			skippedTicks_ += behind;
+			nextTick_ += behind * gravityNanos_;
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event for a game ending, carrying how long the game
+ * lasted and its final counters.
+ * 
+ * @author Sayf Elhawary
+ */
+@Name("omino.GameOver")
+@Label("Game Over")
+@Category({ "Omino", "Engine" })
+@Description("A piece locks above the top of the board")
+@StackTrace(false)
+public class GameOverEvent extends jdk.jfr.Event {
+
+	@Label("Game Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long gameDuration; // The time since the game was started or loaded.
+
+	@Label("Score")
+	int score; // The final score.
+
+	@Label("Rows Cleared")
+	int clearedRows; // The number of rows cleared.
+
+	@Label("Pieces Played")
+	int piecesPlayed; // The number of pieces played.
+
+	@Label("Stack Height")
+	int stackHeight; // The height of the stack at the end.
+
+	@Label("Board Height")
+	int boardHeight; // The board's height, in blocks.
+
+}
@@ -0,0 +1,141 @@
+/**
+ * An immutable view of a game at one moment: the board, the current piece and
+ * its position, and the counters. Once Game.setSnapshots turns them on, the
+ * game publishes a new snapshot after every step, sharing the board snapshot
+ * when only the piece moved, so renderers, spectators and analytics on other
+ * threads always read a consistent frame without locking.
+ *
+ * @author Sayf Elhawary
+ */
+public class GameSnapshot {
+
+	private final BoardSnapshot board_; // The board's contents.
+
+	private final Piece currentPiece_; // The current piece, or null if there is
+	                                   // none.
+
+	private final int currentPieceRow_, currentPieceCol_; // The position of the
+	                                                      // current piece.
+
+	private final int score_, clearedRows_, piecesPlayed_; // The counters.
+
+	private final boolean gameInProgress_, gameOver_; // The game's status.
+
+	/**
+	 * Creates a snapshot.
+	 *
+	 * @param board
+	 *          The board's contents.
+	 * @param currentPiece
+	 *          The current piece, or null if there is none.
+	 * @param currentPieceRow
+	 *          The current piece's row.
+	 * @param currentPieceCol
+	 *          The current piece's column.
+	 * @param score
+	 *          The score.
+	 * @param clearedRows
+	 *          The number of rows cleared.
+	 * @param piecesPlayed
+	 *          The number of pieces played.
+	 * @param gameInProgress
+	 *          Whether the game is in progress.
+	 * @param gameOver
+	 *          Whether the game is over.
+	 */
+	GameSnapshot ( BoardSnapshot board, Piece currentPiece, int currentPieceRow,
+	               int currentPieceCol, int score, int clearedRows,
+	               int piecesPlayed, boolean gameInProgress, boolean gameOver ) {
+		board_ = board;
+		currentPiece_ = currentPiece;
+		currentPieceRow_ = currentPieceRow;
+		currentPieceCol_ = currentPieceCol;
+		score_ = score;
+		clearedRows_ = clearedRows;
+		piecesPlayed_ = piecesPlayed;
+		gameInProgress_ = gameInProgress;
+		gameOver_ = gameOver;
+	}
+
+	/**
+	 * Gets the board's contents.
+	 *
+	 * @return The board snapshot.
+	 */
+	public BoardSnapshot getBoard () {
+		return board_;
+	}
+
+	/**
+	 * Gets the current Piece.
+	 *
+	 * @return The current Piece, or null if there is none.
+	 */
+	public Piece getCurrentPiece () {
+		return currentPiece_;
+	}
+
+	/**
+	 * Gets the current row of the current piece.
+	 *
+	 * @return The current row of the current piece.
+	 */
+	public int getCurrentPieceRow () {
+		return currentPieceRow_;
+	}
+
+	/**
+	 * Gets the current column of the current piece.
+	 *
+	 * @return The current column of the current piece.
+	 */
+	public int getCurrentPieceCol () {
+		return currentPieceCol_;
+	}
+
+	/**
+	 * Gets the score.
+	 *
+	 * @return The score.
+	 */
+	public int getScore () {
+		return score_;
+	}
+
+	/**
+	 * Gets the number of rows cleared.
+	 *
+	 * @return The number of rows cleared.
+	 */
+	public int getClearedRows () {
+		return clearedRows_;
+	}
+
+	/**
+	 * Gets the number of pieces played.
+	 *
+	 * @return The number of pieces played.
+	 */
+	public int getPiecesPlayed () {
+		return piecesPlayed_;
+	}
+
+	/**
+	 * Gets whether or not the game was in progress.
+	 *
+	 * @return True if the game was in progress, false otherwise.
+	 */
+	public boolean getGameProgress () {
+		return gameInProgress_;
+	}
+
+	/**
+	 * Gets whether or not the game was over.
+	 *
+	 * @return True if the game was over, false otherwise.
+	 */
+	public boolean getGameOver () {
+		return gameOver_;
+	}
+
+}
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and loads the full state of a game of Omino! in a versioned binary
+ * format, so that long-running games can be checkpointed and resumed. The
+ * board is stored as row masks and palette indices and read back in bulk into
+ * the board's arrays, so loading allocates no object per cell. Only games
+ * whose pieces come from a SeededPieceGenerator can be saved, since any other
+ * generator's state is unknown.
+ * 
+ * The format is the int "OMGS", the version byte, the size of the whole save,
+ * the board's width and height and the number of polyominos as ints, the
+ * piece set's id as a long, the generator's seed as a long, its copies per
+ * bag as an int and its position as a long, then the game's state as written
+ * by Game.writeState, and finally the CRC-32 of everything before it as an
+ * int. All numbers are big-endian. The checksum is verified before anything
+ * is read, so a torn or corrupted save is rejected instead of loaded.
+ * 
+ * @author Sayf Elhawary
+ */
+public class GameState {
+
+	static final int MAGIC = 0x4F4D4753; // "OMGS"
+
+	static final int VERSION = 1; // The version of the format written.
+
+	private static final int HEADER_SIZE =
+	    Integer.BYTES + 1 + 5 * Integer.BYTES + 3 * Long.BYTES; // The bytes
+	                                                            // before the
+	                                                            // game's state.
+
+	/**
+	 * Gets the number of bytes write puts for a game's current state.
+	 * 
+	 * @param game
+	 *          The game.
+	 * @return The number of bytes.
+	 */
+	public static int getSize ( Game game ) {
+		return HEADER_SIZE + game.getStateSize() + Integer.BYTES;
+	}
+
+	/**
+	 * Writes a game's state to a buffer.
+	 * 
+	 * @param game
+	 *          The game. Its pieces must come from a SeededPieceGenerator.
+	 * @param buffer
+	 *          The buffer, with at least getSize(game) bytes remaining. Its byte
+	 *          order must be big-endian.
+	 */
+	public static void write ( Game game, ByteBuffer buffer ) {
+		if ( !(game.getGenerator() instanceof SeededPieceGenerator) ) {
+			throw new IllegalArgumentException("Only games with a SeededPieceGenerator can be saved.");
+		}
+		if ( buffer.order() != ByteOrder.BIG_ENDIAN ) {
+			throw new IllegalArgumentException("The buffer must be big-endian.");
+		}
+		SeededPieceGenerator generator =
+		    (SeededPieceGenerator) game.getGenerator();
+		int start = buffer.position();
+		buffer.putInt(MAGIC);
+		buffer.put((byte) VERSION);
+		buffer.putInt(getSize(game));
+		buffer.putInt(game.getBoardWidth());
+		buffer.putInt(game.getBoardHeight());
+		buffer.putInt(Game.getNumPolyominoes());
+		buffer.putLong(Game.getPieceSetId());
+		buffer.putLong(generator.getSeed());
+		buffer.putInt(generator.getCopies());
+		buffer.putLong(generator.getPosition());
+		game.writeState(buffer);
+		buffer.putInt(checksum(buffer,start,buffer.position()));
+	}
+
+	/**
+	 * Reads a game written by write.
+	 * 
+	 * @param buffer
+	 *          The buffer, positioned at the game's state. Its byte order must
+	 *          be big-endian. It is left positioned after the state.
+	 * @return The game, in the state it was saved in.
+	 */
+	public static Game read ( ByteBuffer buffer ) {
+		if ( buffer.order() != ByteOrder.BIG_ENDIAN ) {
+			throw new IllegalArgumentException("The buffer must be big-endian.");
+		}
+		int start = buffer.position();
+		if ( buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC ) {
+			throw new IllegalArgumentException("The buffer does not hold a saved Omino! game.");
+		}
+		if ( buffer.get() != VERSION ) {
+			throw new IllegalArgumentException("The saved game's version is not supported.");
+		}
+		int size = buffer.getInt();
+		if ( size < HEADER_SIZE + Integer.BYTES || size > buffer.limit() - start ) {
+			throw new IllegalArgumentException("The saved game is truncated.");
+		}
+		int end = start + size - Integer.BYTES;
+		if ( buffer.getInt(end) != checksum(buffer,start,end) ) {
+			throw new IllegalArgumentException("The saved game is corrupt.");
+		}
+		int boardWidth = buffer.getInt();
+		int boardHeight = buffer.getInt();
+		if ( buffer.getInt() != Game.getNumPolyominoes()
+		    || buffer.getLong() != Game.getPieceSetId() ) {
+			throw new IllegalArgumentException("The game was saved with a different piece set.");
+		}
+		long seed = buffer.getLong();
+		int copies = buffer.getInt();
+		long position = buffer.getLong();
+		if ( copies < 0 || position < 0 ) {
+			throw new IllegalArgumentException("The saved game is corrupt.");
+		}
+		int count = Game.getNumPolyominoes();
+		SeededPieceGenerator generator =
+		    copies == 0 ? SeededPieceGenerator.uniform(count,seed)
+		        : SeededPieceGenerator.bag(count,copies,seed);
+		Game game = new Game(generator,boardWidth,boardHeight);
+		// the queue read replaces the pieces prefetched by the constructor
+		game.readState(buffer);
+		generator.seek(position);
+		if ( buffer.position() != end ) {
+			throw new IllegalArgumentException("The saved game is corrupt.");
+		}
+		buffer.position(start + size);
+		return game;
+	}
+
+	/**
+	 * Saves a game to a file. The state is written to a temporary file that
+	 * then replaces the file, so a crash never leaves a partly written save.
+	 * 
+	 * @param game
+	 *          The game. Its pieces must come from a SeededPieceGenerator.
+	 * @param file
+	 *          The file.
+	 * @throws IOException
+	 *           If the file cannot be written.
+	 */
+	public static void save ( Game game, Path file ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(getSize(game));
+		write(game,buffer);
+		buffer.flip();
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try ( FileChannel channel =
+		    FileChannel.open(temporary,StandardOpenOption.CREATE,
+		                     StandardOpenOption.TRUNCATE_EXISTING,
+		                     StandardOpenOption.WRITE) ) {
+			while ( buffer.hasRemaining() ) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+		Files.move(temporary,file,StandardCopyOption.REPLACE_EXISTING,
+		           StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads a game saved by save. The file is memory-mapped and the game is
+	 * read straight from the mapping.
+	 * 
+	 * @param file
+	 *          The file.
+	 * @return The game, in the state it was saved in.
+	 * @throws IOException
+	 *           If the file cannot be read.
+	 */
+	public static Game load ( Path file ) throws IOException {
+		try ( FileChannel channel = FileChannel.open(file,StandardOpenOption.READ) ) {
+			return read(channel.map(MapMode.READ_ONLY,0,channel.size()));
+		}
+	}
+
+	/**
+	 * Computes the CRC-32 of part of a buffer without moving its position.
+	 * 
+	 * @param buffer
+	 *          The buffer.
+	 * @param from
+	 *          The position of the first byte.
+	 * @param to
+	 *          The position after the last byte.
+	 * @return The checksum.
+	 */
+	private static int checksum ( ByteBuffer buffer, int from, int to ) {
+		CRC32 crc = new CRC32();
+		ByteBuffer part = buffer.duplicate();
+		part.limit(to).position(from);
+		crc.update(part);
+		return (int) crc.getValue();
+	}
+
+}
@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Tester for GameState.
+ * 
+ * @author Sayf Elhawary
+ */
+public class GameStateTester {
+
+	public static void main(String[] args) throws IOException {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: read - game in progress
+			// starting state: bot game with a bag generator, part way through
+			// input: the state written by write
+			// expected result: the same state, and the same game when both are
+			// played on
+			System.out.println("read - game in progress");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.bag(Game.getNumPolyominoes(), 2, 42));
+			PlacementBot bot = new PlacementBot();
+			game.start();
+			for (int i = 0; i < 777; i++) {
+				Action action = bot.nextAction(game);
+				game.movePiece(action == null ? Action.DOWN : action);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(GameState.getSize(game));
+			GameState.write(game, buffer);
+			boolean test = !buffer.hasRemaining();
+			buffer.flip();
+			Game loaded = GameState.read(buffer);
+			test = test && !buffer.hasRemaining() && sameState(game, loaded);
+			PlacementBot other = new PlacementBot();
+			for (int i = 0; i < 3000 && !game.getGameOver(); i++) {
+				Action action = bot.nextAction(game);
+				game.movePiece(action == null ? Action.DOWN : action);
+				action = other.nextAction(loaded);
+				loaded.movePiece(action == null ? Action.DOWN : action);
+			}
+			test = test && sameState(game, loaded);
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: save, load - through a file
+			// starting state: game over
+			// input: a temporary file
+			// expected result: the same state, and no temporary file left
+			System.out.println("save, load - through a file");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 5));
+			game.start();
+			while (!game.getGameOver()) {
+				game.movePiece(Action.DROP);
+				game.movePiece(Action.DOWN);
+			}
+			Path directory = Files.createTempDirectory("omino");
+			Path file = directory.resolve("game.oms");
+			GameState.save(game, file);
+			Game loaded = GameState.load(file);
+			boolean test = sameState(game, loaded) && loaded.getGameOver() && !loaded.getGameProgress();
+			try (Stream<Path> files = Files.list(directory)) {
+				test = test && files.count() == 1;
+			}
+			Files.delete(file);
+			Files.delete(directory);
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: read - corrupted save
+			// starting state: saved game with one byte flipped
+			// input: the state
+			// expected result: IllegalArgumentException
+			System.out.println("read - corrupted save");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 5));
+			game.start();
+			for (int i = 0; i < 40; i++) {
+				game.movePiece(Action.DOWN);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(GameState.getSize(game));
+			GameState.write(game, buffer);
+			buffer.put(60, (byte) (buffer.get(60) ^ 1));
+			buffer.flip();
+			boolean test = false;
+			try {
+				GameState.read(buffer);
+			} catch (IllegalArgumentException e) {
+				test = true;
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: write - generator that is not seeded
+			// starting state: game with a constant generator
+			// input: a buffer
+			// expected result: IllegalArgumentException
+			System.out.println("write - generator that is not seeded");
+			System.out.println();
+			Game game = new Game(() -> 0);
+			boolean test = false;
+			try {
+				GameState.write(game, ByteBuffer.allocate(GameState.getSize(game)));
+			} catch (IllegalArgumentException e) {
+				test = true;
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+	/**
+	 * Gets whether two games are in the same state.
+	 * 
+	 * @param game
+	 *          A game.
+	 * @param other
+	 *          Another game.
+	 * @return True if the games are in the same state, false otherwise.
+	 */
+	private static boolean sameState(Game game, Game other) {
+		boolean same = game.getStateKey() == other.getStateKey() && game.getScore() == other.getScore()
+		    && game.getClearedRows() == other.getClearedRows() && game.getPiecesPlayed() == other.getPiecesPlayed()
+		    && game.getCurrentPieceRow() == other.getCurrentPieceRow()
+		    && game.getCurrentPieceCol() == other.getCurrentPieceCol()
+		    && game.getCurrentPolyomino() == other.getCurrentPolyomino()
+		    && game.getGameOver() == other.getGameOver() && game.getGameProgress() == other.getGameProgress();
+		for (int i = 0; i < game.getLookahead(); i++) {
+			same = same && game.getNextPolyomino(i) == other.getNextPolyomino(i);
+		}
+		for (int i = 0; i < game.getBoardHeight(); i++) {
+			for (int j = 0; j < game.getBoardWidth(); j++) {
+				same = same && game.getBoard().getPositionColor(i, j) == other.getBoard().getPositionColor(i, j);
+			}
+		}
+		return same;
+	}
+
+}
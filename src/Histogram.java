@@ -0,0 +1,122 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of non-negative values, such as latencies in nanoseconds,
+ * that any number of threads can record into at once. Recording is lock-free
+ * and allocates nothing: the values go into the same log-linear buckets as a
+ * Distribution, and snapshot turns them into one for percentiles and summary
+ * statistics.
+ * 
+ * @author Sayf Elhawary
+ */
+public class Histogram {
+
+	private String name_; // The name the histogram is reported under.
+
+	private AtomicLongArray buckets_; // The number of values in each bucket.
+
+	private LongAdder count_; // The number of values.
+
+	private DoubleAdder sum_, sumSquares_; // The sum of the values and of their
+	                                       // squares.
+
+	private LongAccumulator min_, max_; // The smallest and largest values.
+
+	/**
+	 * Creates an empty histogram.
+	 * 
+	 * @param name
+	 *          The name the histogram is reported under.
+	 */
+	public Histogram ( String name ) {
+		name_ = name;
+		buckets_ = new AtomicLongArray(Distribution.NUM_BUCKETS);
+		count_ = new LongAdder();
+		sum_ = new DoubleAdder();
+		sumSquares_ = new DoubleAdder();
+		min_ = new LongAccumulator(Math::min,Long.MAX_VALUE);
+		max_ = new LongAccumulator(Math::max,Long.MIN_VALUE);
+	}
+
+	/**
+	 * Gets the name the histogram is reported under.
+	 * 
+	 * @return The name.
+	 */
+	public String getName () {
+		return name_;
+	}
+
+	/**
+	 * Records a value.
+	 * 
+	 * @param value
+	 *          The value. Negative values, such as from a clock that went
+	 *          backwards, are recorded as 0.
+	 */
+	public void record ( long value ) {
+		value = Math.max(value,0);
+		buckets_.getAndIncrement(Distribution.bucketIndex(value));
+		count_.increment();
+		sum_.add(value);
+		sumSquares_.add((double) value * value);
+		min_.accumulate(value);
+		max_.accumulate(value);
+	}
+
+	/**
+	 * Records the nanoseconds elapsed since a moment.
+	 * 
+	 * @param start
+	 *          The moment, as returned by System.nanoTime().
+	 */
+	public void recordSince ( long start ) {
+		record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 * 
+	 * @return The number of values.
+	 */
+	public long getCount () {
+		return count_.sum();
+	}
+
+	/**
+	 * Gets a copy of the values recorded so far. Values recorded while the copy
+	 * is taken may be missing from some of its statistics.
+	 * 
+	 * @return The distribution of the values.
+	 */
+	public Distribution snapshot () {
+		long[] buckets = new long[buckets_.length()];
+		long count = 0;
+		for ( int i = 0 ; i < buckets.length ; i++ ) {
+			buckets[i] = buckets_.get(i);
+			count += buckets[i];
+		}
+		// the bucket counts are the ones the percentiles are computed from
+		return new Distribution(count,min_.get(),max_.get(),sum_.sum(),
+		                        sumSquares_.sum(),buckets);
+	}
+
+	/**
+	 * Discards the values recorded so far. Values recorded meanwhile may be
+	 * partly kept.
+	 */
+	public void reset () {
+		for ( int i = 0 ; i < buckets_.length() ; i++ ) {
+			buckets_.set(i,0);
+		}
+		count_.reset();
+		sum_.reset();
+		sumSquares_.reset();
+		min_.reset();
+		max_.reset();
+	}
+
+}
@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for a game's Board.clearRows removing at least
+ * one row, lasting as long as the rows take to remove. Boards a bot searches
+ * with emit none, so recordings show only the rows the game cleared.
+ * 
+ * @author Sayf Elhawary
+ */
+@Name("omino.LineClear")
+@Label("Line Clear")
+@Category({ "Omino", "Engine" })
+@Description("Full rows are removed from the board")
+@StackTrace(false)
+public class LineClearEvent extends jdk.jfr.Event {
+
+	@Label("Rows Cleared")
+	int rowsCleared; // The number of rows removed.
+
+	@Label("Stack Height")
+	@Description("One more than the highest occupied row, before clearing")
+	int stackHeight; // The height of the stack before the rows were removed.
+
+	@Label("Board Height")
+	int boardHeight; // The board's height, in blocks.
+
+}
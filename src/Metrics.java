@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The instrumentation of Omino!: named latency histograms that the engine
+ * and the UI record into, such as the time Game.movePiece takes for each
+ * action, the lag between a change being fired and its listeners running,
+ * and the time spent painting. Instrumentation is off by default; then each
+ * instrumented call costs one volatile read. When it is on, a call costs two
+ * clock reads and a lock-free histogram update.
+ * 
+ * The histograms can be read through snapshot, through JMX as
+ * omino:type=Metrics once registerMBean is called, and as CSV, either on
+ * demand or appended to a file periodically, with one line per histogram:
+ * time, name, count, mean, p50, p90, p99 and max, in nanoseconds.
+ * 
+ * @author Sayf Elhawary
+ */
+public class Metrics {
+
+	static final String CSV_HEADER = "time,name,count,mean,p50,p90,p99,max";
+	// The first line of the CSV.
+
+	private static final String MBEAN_NAME = "omino:type=Metrics";
+	// The name the MXBean is registered under.
+
+	private static volatile boolean enabled_ = false; // Whether timings are
+	                                                  // recorded.
+
+	private static final ConcurrentMap<String,Histogram> histograms_ =
+	    new ConcurrentSkipListMap<>(); // The histograms, by name.
+
+	private static ScheduledExecutorService scheduler_ = null; // Writes the
+	                                                           // periodic CSV,
+	                                                           // once started.
+
+	private Metrics () {}
+
+	/**
+	 * Gets whether instrumentation is on.
+	 * 
+	 * @return True if timings are being recorded, false otherwise.
+	 */
+	public static boolean isEnabled () {
+		return enabled_;
+	}
+
+	/**
+	 * Switches instrumentation on or off.
+	 * 
+	 * @param enabled
+	 *          True to record timings, false to stop.
+	 */
+	public static void setEnabled ( boolean enabled ) {
+		enabled_ = enabled;
+	}
+
+	/**
+	 * Gets the histogram with a name, creating it if there is none yet.
+	 * Instrumented classes keep their histograms in static fields.
+	 * 
+	 * @param name
+	 *          The histogram's name, such as "Board.clearRows".
+	 * @return The histogram.
+	 */
+	public static Histogram histogram ( String name ) {
+		return histograms_.computeIfAbsent(name,Histogram::new);
+	}
+
+	/**
+	 * Gets a copy of every histogram.
+	 * 
+	 * @return The histograms' distributions, by name, in name order.
+	 */
+	public static Map<String,Distribution> snapshot () {
+		Map<String,Distribution> snapshot = new TreeMap<>();
+		for ( Histogram histogram : histograms_.values() ) {
+			snapshot.put(histogram.getName(),histogram.snapshot());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Discards the values recorded so far by every histogram.
+	 */
+	public static void reset () {
+		for ( Histogram histogram : histograms_.values() ) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Writes a CSV line for each histogram that has values.
+	 * 
+	 * @param out
+	 *          The destination.
+	 * @param time
+	 *          The time the lines are stamped with, in milliseconds since the
+	 *          epoch.
+	 * @throws IOException
+	 *           If the destination cannot be written.
+	 */
+	public static void writeCsv ( Appendable out, long time ) throws IOException {
+		for ( Map.Entry<String,Distribution> entry : snapshot().entrySet() ) {
+			Distribution distribution = entry.getValue();
+			if ( distribution.getCount() == 0 ) {
+				continue;
+			}
+			out.append(String.format("%d,%s,%d,%.1f,%d,%d,%d,%d%n",time,
+			                         entry.getKey(),distribution.getCount(),
+			                         distribution.getMean(),
+			                         distribution.getPercentile(50),
+			                         distribution.getPercentile(90),
+			                         distribution.getPercentile(99),
+			                         distribution.getMax()));
+		}
+	}
+
+	/**
+	 * Starts appending the histograms to a CSV file periodically, on a daemon
+	 * thread. The header is written first if the file is new or empty. A dump
+	 * that fails is reported on the standard error stream, and later dumps go
+	 * on.
+	 * 
+	 * @param file
+	 *          The file.
+	 * @param periodMillis
+	 *          The milliseconds between dumps. periodMillis > 0.
+	 * @return The periodic task, which stops when cancelled.
+	 */
+	public static synchronized ScheduledFuture<?> scheduleCsv ( Path file,
+	                                                            long periodMillis ) {
+		if ( periodMillis <= 0 ) {
+			throw new IllegalArgumentException("Input a number more than zero.");
+		}
+		if ( scheduler_ == null ) {
+			scheduler_ = Executors.newSingleThreadScheduledExecutor(task -> {
+				Thread thread = new Thread(task,"omino-metrics");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return scheduler_.scheduleAtFixedRate( () -> {
+			try ( Writer out = Files
+			    .newBufferedWriter(file,StandardCharsets.UTF_8,
+			                       StandardOpenOption.CREATE,
+			                       StandardOpenOption.APPEND) ) {
+				if ( Files.size(file) == 0 ) {
+					out.append(CSV_HEADER).append(System.lineSeparator());
+				}
+				writeCsv(out,System.currentTimeMillis());
+			} catch ( IOException | RuntimeException e ) {
+				// an exception escaping the task would silently cancel every later
+				// dump, so the error is reported and the next dump tries again
+				System.err.println("Metrics could not be written to " + file + ": "
+				    + e);
+			}
+		},periodMillis,periodMillis,TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Registers the MXBean with the platform MBean server, if it is not
+	 * registered yet.
+	 */
+	public static synchronized void registerMBean () {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			if ( !server.isRegistered(name) ) {
+				server.registerMBean(new Bean(),name);
+			}
+		} catch ( JMException e ) {
+			throw new IllegalStateException("The metrics MXBean could not be registered.",e);
+		}
+	}
+
+	/**
+	 * Gets a statistic of every histogram that has values.
+	 * 
+	 * @param statistic
+	 *          The statistic.
+	 * @return The statistic of each histogram, by name.
+	 */
+	private static Map<String,Long> collect ( ToLongFunction<Distribution> statistic ) {
+		Map<String,Long> values = new TreeMap<>();
+		for ( Map.Entry<String,Distribution> entry : snapshot().entrySet() ) {
+			if ( entry.getValue().getCount() > 0 ) {
+				values.put(entry.getKey(),statistic.applyAsLong(entry.getValue()));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * The MXBean, which reads the static registry.
+	 */
+	private static class Bean implements MetricsMXBean {
+
+		@Override
+		public boolean isEnabled () {
+			return Metrics.isEnabled();
+		}
+
+		@Override
+		public void setEnabled ( boolean enabled ) {
+			Metrics.setEnabled(enabled);
+		}
+
+		@Override
+		public Map<String,Long> getCounts () {
+			return collect(Distribution::getCount);
+		}
+
+		@Override
+		public Map<String,Double> getMeans () {
+			Map<String,Double> means = new TreeMap<>();
+			for ( Map.Entry<String,Distribution> entry : snapshot().entrySet() ) {
+				if ( entry.getValue().getCount() > 0 ) {
+					means.put(entry.getKey(),entry.getValue().getMean());
+				}
+			}
+			return means;
+		}
+
+		@Override
+		public Map<String,Long> getP50s () {
+			return collect(distribution -> distribution.getPercentile(50));
+		}
+
+		@Override
+		public Map<String,Long> getP99s () {
+			return collect(distribution -> distribution.getPercentile(99));
+		}
+
+		@Override
+		public Map<String,Long> getMaxes () {
+			return collect(Distribution::getMax);
+		}
+
+		@Override
+		public String getCsv () {
+			StringBuilder csv =
+			    new StringBuilder(CSV_HEADER).append(System.lineSeparator());
+			try {
+				writeCsv(csv,System.currentTimeMillis());
+			} catch ( IOException e ) {
+				// a StringBuilder never throws
+				throw new UncheckedIOException(e);
+			}
+			return csv.toString();
+		}
+
+		@Override
+		public void reset () {
+			Metrics.reset();
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+import java.util.Map;
+
+/**
+ * The management interface of Metrics, registered as omino:type=Metrics so
+ * that JConsole, VisualVM or any JMX client can switch instrumentation on and
+ * read the timings of a running game. Times are in nanoseconds and maps are
+ * keyed by histogram name.
+ * 
+ * @author Sayf Elhawary
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * Gets whether instrumentation is on.
+	 * 
+	 * @return True if timings are being recorded, false otherwise.
+	 */
+	boolean isEnabled ();
+
+	/**
+	 * Switches instrumentation on or off.
+	 * 
+	 * @param enabled
+	 *          True to record timings, false to stop.
+	 */
+	void setEnabled ( boolean enabled );
+
+	/**
+	 * Gets the number of values recorded by each histogram.
+	 * 
+	 * @return The counts.
+	 */
+	Map<String,Long> getCounts ();
+
+	/**
+	 * Gets the mean of each histogram.
+	 * 
+	 * @return The means.
+	 */
+	Map<String,Double> getMeans ();
+
+	/**
+	 * Gets the median of each histogram.
+	 * 
+	 * @return Upper bounds of the medians.
+	 */
+	Map<String,Long> getP50s ();
+
+	/**
+	 * Gets the 99th percentile of each histogram.
+	 * 
+	 * @return Upper bounds of the 99th percentiles.
+	 */
+	Map<String,Long> getP99s ();
+
+	/**
+	 * Gets the largest value of each histogram.
+	 * 
+	 * @return The largest values.
+	 */
+	Map<String,Long> getMaxes ();
+
+	/**
+	 * Gets the summary of every histogram as CSV.
+	 * 
+	 * @return The CSV, with a header line.
+	 */
+	String getCsv ();
+
+	/**
+	 * Discards the values recorded so far.
+	 */
+	void reset ();
+
+}
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Tester for Metrics and Histogram.
+ * 
+ * @author Sayf Elhawary
+ */
+public class MetricsTester {
+
+	public static void main(String[] args) throws InterruptedException, IOException, JMException {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: record - several threads at once
+			// starting state: empty histogram
+			// input: 4 threads recording 10000 random values each
+			// expected result: the same statistics as a Distribution of the
+			// values
+			System.out.println("record - several threads at once");
+			System.out.println();
+			Histogram histogram = new Histogram("test");
+			Distribution[] expected = new Distribution[4];
+			Thread[] threads = new Thread[expected.length];
+			for (int i = 0; i < threads.length; i++) {
+				Distribution distribution = new Distribution();
+				expected[i] = distribution;
+				SplittableRandom random = new SplittableRandom(i);
+				threads[i] = new Thread(() -> {
+					for (int j = 0; j < 10000; j++) {
+						long value = random.nextLong(1_000_000);
+						histogram.record(value);
+						distribution.add(value);
+					}
+				});
+				threads[i].start();
+			}
+			Distribution all = new Distribution();
+			for (int i = 0; i < threads.length; i++) {
+				threads[i].join();
+				all.addAll(expected[i]);
+			}
+			Distribution snapshot = histogram.snapshot();
+			boolean test = snapshot.getCount() == all.getCount() && snapshot.getMin() == all.getMin()
+			    && snapshot.getMax() == all.getMax() && snapshot.getSum() == all.getSum();
+			for (int percentile = 1; percentile <= 100; percentile++) {
+				test = test && snapshot.getPercentile(percentile) == all.getPercentile(percentile);
+			}
+			histogram.reset();
+			test = test && histogram.getCount() == 0 && histogram.snapshot().getCount() == 0;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: movePiece - instrumentation on and off
+			// starting state: started game
+			// input: a DOWN, 3 LEFTs, a DROP and a DOWN with metrics off, then
+			// again with metrics on, followed by a bot choosing a move
+			// expected result: only the moves made with metrics on are counted,
+			// by action, along with the board operations they used; the bot's
+			// search on its scratch boards is not counted
+			System.out.println("movePiece - instrumentation on and off");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 1));
+			game.start();
+			Metrics.setEnabled(false);
+			Metrics.reset();
+			moves(game);
+			Metrics.setEnabled(true);
+			moves(game);
+			new PlacementBot().nextAction(game);
+			Metrics.setEnabled(false);
+			Map<String, Distribution> snapshot = Metrics.snapshot();
+			boolean test = snapshot.get("Game.movePiece.LEFT").getCount() == 3
+			    && snapshot.get("Game.movePiece.DOWN").getCount() == 2
+			    && snapshot.get("Game.movePiece.DROP").getCount() == 1
+			    && snapshot.get("Game.movePiece.ROTATE").getCount() == 0
+			    && snapshot.get("Board.getDropRow").getCount() == 1
+			    && snapshot.get("Board.clearRows").getCount() == 1;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: writeCsv - recorded histograms
+			// starting state: one histogram with values 1 to 100, the others
+			// empty
+			// input: time 1234
+			// expected result: one line, with the histogram's summary
+			System.out.println("writeCsv - recorded histograms");
+			System.out.println();
+			Metrics.reset();
+			Histogram histogram = Metrics.histogram("MetricsTester.csv");
+			for (int i = 1; i <= 100; i++) {
+				histogram.record(i);
+			}
+			StringBuilder csv = new StringBuilder();
+			Metrics.writeCsv(csv, 1234);
+			Distribution distribution = histogram.snapshot();
+			String expected = String.format("1234,MetricsTester.csv,100,50.5,%d,%d,%d,100%n",
+			    distribution.getPercentile(50), distribution.getPercentile(90), distribution.getPercentile(99));
+			boolean test = csv.toString().equals(expected) && Metrics.CSV_HEADER.split(",").length == 8;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: registerMBean - attributes and operations
+			// starting state: one histogram with 3 values
+			// input: the platform MBean server
+			// expected result: the counts and maxima through JMX, and enabling
+			// and resetting through JMX
+			System.out.println("registerMBean - attributes and operations");
+			System.out.println();
+			Metrics.reset();
+			Histogram histogram = Metrics.histogram("MetricsTester.mbean");
+			histogram.record(5);
+			histogram.record(7);
+			histogram.record(9);
+			Metrics.registerMBean();
+			Metrics.registerMBean();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("omino:type=Metrics");
+			MetricsMXBean bean = JMX.newMXBeanProxy(server, name, MetricsMXBean.class);
+			boolean test = bean.getCounts().get("MetricsTester.mbean") == 3
+			    && bean.getMaxes().get("MetricsTester.mbean") == 9 && bean.getMeans().get("MetricsTester.mbean") == 7
+			    && bean.getCsv().startsWith(Metrics.CSV_HEADER);
+			bean.setEnabled(true);
+			test = test && Metrics.isEnabled();
+			bean.setEnabled(false);
+			bean.reset();
+			test = test && !Metrics.isEnabled() && histogram.getCount() == 0 && bean.getCounts().isEmpty();
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: scheduleCsv - dumps that fail
+			// starting state: one histogram with a value
+			// input: a directory as the file, every 10 milliseconds
+			// expected result: the task keeps running after several failed dumps
+			System.out.println("scheduleCsv - dumps that fail");
+			System.out.println();
+			Metrics.reset();
+			Metrics.histogram("MetricsTester.schedule").record(1);
+			Path directory = Files.createTempDirectory("omino");
+			PrintStream err = System.err;
+			System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+			ScheduledFuture<?> task = Metrics.scheduleCsv(directory, 10);
+			Thread.sleep(100);
+			boolean test = !task.isDone();
+			task.cancel(false);
+			Thread.sleep(20);
+			System.setErr(err);
+			Files.delete(directory);
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+	/**
+	 * Moves the current piece into play, left three times, and lands it.
+	 * 
+	 * @param game
+	 *          The game.
+	 */
+	private static void moves(Game game) {
+		game.movePiece(Action.DOWN);
+		for (int i = 0; i < 3; i++) {
+			game.movePiece(Action.LEFT);
+		}
+		game.movePiece(Action.DROP);
+		game.movePiece(Action.DOWN);
+	}
+
+}
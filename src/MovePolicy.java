@@ -0,0 +1,18 @@
+/**
+ * Chooses the moves of a player in Omino!. A policy is used by a single game
+ * at a time, so it may keep state between moves.
+ * 
+ * @author Sayf Elhawary
+ */
+public interface MovePolicy {
+
+	/**
+	 * Chooses the next action for the current piece of a game in progress.
+	 * 
+	 * @param game
+	 *          The game being played.
+	 * @return The action to take, or null to let the piece fall.
+	 */
+	Action nextAction ( Game game );
+
+}
@@ -1,8 +1,15 @@
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import jdk.jfr.EventType;
+
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -22,6 +29,10 @@ import javafx.stage.Stage;
  * <br>
  * Game controls: 'j'/'l' to move left/right, 'k' to rotate', spacebar to drop
  * piece.
+ * <br>
+ * Metrics: run with -Domino.metrics=true to record timings, which can be read
+ * through JMX as omino:type=Metrics, and with -Domino.metrics.csv=file to also
+ * append them to a CSV file every few seconds.
  * 
  * @author Sayf Elhawary
  */
@@ -37,6 +48,48 @@ public class Omino extends Application implements PropertyChangeListener {
 	// the game state
 	private Game game_;
 
+	// the thread that applies every change to the game and its gravity; the key
+	// handlers only submit moves to it
+	private GameLoop loop_;
+
+	// whether gravity is paused
+	private boolean paused_ = false;
+
+	// what changed since the last frame: the board rows (null if none), and
+	// flags for the current piece and the stats. The game thread sets them and
+	// the renderer takes them once per frame.
+	private final AtomicReference<RowRange> dirtyRows_ = new AtomicReference<>();
+	private final AtomicInteger dirty_ = new AtomicInteger();
+	private static final int PIECE_DIRTY = 1, STATS_DIRTY = 2;
+
+	// when the first change since the last frame was handled, or 0 if none or
+	// untimed
+	private final AtomicLong changedAt_ = new AtomicLong();
+
+	// the timings of rendering
+	private static final Histogram RENDER_LAG = Metrics.histogram("Omino.renderLag"),
+			DRAW_BOARD_TIMES = Metrics.histogram("Omino.drawBoard"),
+			DRAW_PIECE_TIMES = Metrics.histogram("Omino.drawCurrentPiece");
+
+	// the JFR event type of repaints, so that changes are only timed when
+	// they are recorded
+	private static final EventType REPAINT_TYPE = EventType.getEventType(RepaintEvent.class);
+
+	// milliseconds between dumps of the metrics to the CSV file
+	private static final long METRICS_PERIOD = 5000;
+
+	// the snapshot of the game being drawn; the frame reads nothing else, so it
+	// is consistent even while the game thread moves on
+	private GameSnapshot frame_;
+
+	// JavaFX colors for the game's 0xRRGGBB colors
+	private Map<Integer, Color> colors_ = new HashMap<>();
+
+	// the current piece and its position as last drawn, so that only its
+	// blocks need to be erased
+	private Piece drawnPiece_ = null;
+	private int drawnRow_, drawnCol_;
+
 	/**
 	 * Handle a user key press.
 	 * 
@@ -45,44 +98,80 @@ public class Omino extends Application implements PropertyChangeListener {
 	private void handleKey(char ch) {
 		if (ch == 'j') { // left
 			// move piece left
-			game_.movePiece(Action.LEFT);
+			loop_.submit(Action.LEFT);
 		} else if (ch == 'l') { // right
 			// move piece right
-			game_.movePiece(Action.RIGHT);
+			loop_.submit(Action.RIGHT);
 		} else if (ch == ' ') { // drop
 			// move piece drop
-			game_.movePiece(Action.DROP);
+			loop_.submit(Action.DROP);
 		} else if (ch == 'k') { // rotate
 			// move piece rotate
-			game_.movePiece(Action.ROTATE);
+			loop_.submit(Action.ROTATE);
 		} else if (ch == 'p') { // pause
-			if (timer_ == null) {
-				startTimer();
-			} else {
-				stopTimer();
-			}
+			paused_ = !paused_;
+			loop_.setPaused(paused_);
 
 		} else if (ch == 'q') { // quit
 			Platform.exit();
 
 		} else if (ch == 'n') { // new game
 			// reset and start game
-			game_.reset();
-			game_.start();
-			startTimer();
+			loop_.submit(() -> {
+				game_.reset();
+				game_.start();
+			});
+			paused_ = false;
+			loop_.setPaused(false);
 		}
 	}
 
-	class MoveTask extends TimerTask {
-		@Override
-		public void run() {
-			// move piece down, stopping the timer if moving the piece results in
-			// the game being over
-			game_.movePiece(Action.DOWN);
-			if (game_.getGameOver()) {
-				stopTimer();
+	/**
+	 * Redraw whatever changed in the game since the last frame. A repaint emits
+	 * a RepaintEvent.
+	 */
+	private void render() {
+		// take the changes before the snapshot, so the snapshot includes them
+		RowRange rows = dirtyRows_.getAndSet(null);
+		int dirty = dirty_.getAndSet(0);
+		long changedAt = changedAt_.getAndSet(0);
+		long lag = changedAt == 0 ? 0 : System.nanoTime() - changedAt;
+		if (changedAt != 0 && Metrics.isEnabled()) {
+			RENDER_LAG.record(lag);
+		}
+		RepaintEvent event = new RepaintEvent();
+		event.begin();
+		frame_ = game_.getSnapshot();
+		boolean timed = Metrics.isEnabled();
+		if (rows != null) {
+			long start = timed ? System.nanoTime() : 0;
+			drawBoardRows(boardcanvas_.getGraphicsContext2D(), rows);
+			if (timed) {
+				DRAW_BOARD_TIMES.recordSince(start);
+			}
+		}
+		if ((dirty & PIECE_DIRTY) != 0) {
+			long start = timed ? System.nanoTime() : 0;
+			drawCurrentPiece(piececanvas_.getGraphicsContext2D());
+			if (timed) {
+				DRAW_PIECE_TIMES.recordSince(start);
 			}
 		}
+		if ((dirty & STATS_DIRTY) != 0) {
+			score_.setText(String.format("%5s", "" + getScore()));
+			numrows_.setText(String.format("%5s", "" + getNumRowsCleared()));
+			numpieces_.setText(String.format("%5s", "" + getNumPiecesPlayed()));
+		}
+		event.end();
+		if ((rows != null || dirty != 0) && event.shouldCommit()) {
+			event.lag = lag;
+			event.rowsRepainted = rows == null ? 0
+					: Math.max(Math.min(rows.getHigh(), frame_.getBoard().getBoardHeight() - 1) - Math.max(rows.getLow(), 0) + 1, 0);
+			event.pieceRepainted = (dirty & PIECE_DIRTY) != 0;
+			event.stackHeight = frame_.getBoard().getStackHeight();
+			event.boardHeight = frame_.getBoard().getBoardHeight();
+			event.commit();
+		}
 	}
 
 	/**
@@ -91,51 +180,70 @@ public class Omino extends Application implements PropertyChangeListener {
 	 * @param g the GraphicsContext to use for drawing
 	 */
 	private void drawBoard(GraphicsContext g) {
-		// draw the contents of the game board
+		drawBoardRows(g, new RowRange(0, frame_.getBoard().getBoardHeight() - 1));
+	}
+
+	/**
+	 * Draw some rows of the game board. Every cell is painted over completely, so
+	 * the rest of the canvas does not need to be cleared.
+	 * 
+	 * @param g    the GraphicsContext to use for drawing
+	 * @param rows the rows to draw
+	 */
+	private void drawBoardRows(GraphicsContext g, RowRange rows) {
+		BoardSnapshot board = frame_.getBoard();
+		int height = board.getBoardHeight();
+		int width = board.getBoardWidth();
 		g.setStroke(Color.BLACK);
-		for (int i = 0; i < game_.getBoard().getBoardHeight(); i++) {
-			for (int j = 0; j < game_.getBoard().getBoardWidth(); j++) {
-				if (!game_.getBoard().isEmpty(i, j)) {
-					g.setFill(game_.getBoard().getPositionColor(i, j));
-					g.fillRect(j * BLOCK_SIZE, (game_.getBoard().getBoardHeight() - 1 - i) * BLOCK_SIZE, BLOCK_SIZE,
-							BLOCK_SIZE);
-					g.strokeRect(j * BLOCK_SIZE, (game_.getBoard().getBoardHeight() - 1 - i) * BLOCK_SIZE, BLOCK_SIZE,
-							BLOCK_SIZE);
-				} else {
-					g.setFill(Color.BLACK);
-					g.fillRect(j * BLOCK_SIZE, (game_.getBoard().getBoardHeight() - 1 - i) * BLOCK_SIZE, BLOCK_SIZE,
-							BLOCK_SIZE);
-					g.strokeRect(j * BLOCK_SIZE, (game_.getBoard().getBoardHeight() - 1 - i) * BLOCK_SIZE, BLOCK_SIZE,
-							BLOCK_SIZE);
-				}
+		for (int i = Math.max(rows.getLow(), 0); i <= Math.min(rows.getHigh(), height - 1); i++) {
+			for (int j = 0; j < width; j++) {
+				int color = board.getPositionColor(i, j);
+				g.setFill(color == -1 ? Color.BLACK : toColor(color));
+				g.fillRect(j * BLOCK_SIZE, (height - 1 - i) * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+				g.strokeRect(j * BLOCK_SIZE, (height - 1 - i) * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
 			}
 		}
 	}
 
 	/**
-	 * Draw the current piece.
+	 * Draw the current piece, erasing only the blocks of the piece as it was last
+	 * drawn.
 	 * 
 	 * @param g the GraphicsContext to use for drawing
 	 */
 	public void drawCurrentPiece(GraphicsContext g) {
-		// draw the current piece
-		if (game_.getCurrentPiece() != null) {
-			for (int i = 0; i < game_.getCurrentPiece().getBody().length; i++) {
-				g.setFill(game_.getCurrentPiece().getPieceColor());
-				g.fillRect((game_.getCurrentPiece().getBody()[i].getCol() + game_.getCurrentPieceCol()) * BLOCK_SIZE,
-						(game_.getBoardHeight() - 1
-								- (game_.getCurrentPiece().getBody()[i].getRow() + game_.getCurrentPieceRow()))
-								* BLOCK_SIZE,
-						BLOCK_SIZE, BLOCK_SIZE);
-				g.strokeRect((game_.getCurrentPiece().getBody()[i].getCol() + game_.getCurrentPieceCol()) * BLOCK_SIZE,
-						(game_.getBoardHeight() - 1
-								- (game_.getCurrentPiece().getBody()[i].getRow() + game_.getCurrentPieceRow()))
-								* BLOCK_SIZE,
-						BLOCK_SIZE, BLOCK_SIZE);
+		int height = frame_.getBoard().getBoardHeight();
+		if (drawnPiece_ != null) {
+			// strokes reach past the block's edges, so erase a pixel around it
+			for (Block block : drawnPiece_.getBody()) {
+				g.clearRect((block.getCol() + drawnCol_) * BLOCK_SIZE - 1,
+						(height - 1 - (block.getRow() + drawnRow_)) * BLOCK_SIZE - 1, BLOCK_SIZE + 2, BLOCK_SIZE + 2);
+			}
+		}
+		drawnPiece_ = frame_.getCurrentPiece();
+		drawnRow_ = frame_.getCurrentPieceRow();
+		drawnCol_ = frame_.getCurrentPieceCol();
+		if (drawnPiece_ != null) {
+			g.setFill(toColor(drawnPiece_.getPieceColor()));
+			for (Block block : drawnPiece_.getBody()) {
+				g.fillRect((block.getCol() + drawnCol_) * BLOCK_SIZE,
+						(height - 1 - (block.getRow() + drawnRow_)) * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+				g.strokeRect((block.getCol() + drawnCol_) * BLOCK_SIZE,
+						(height - 1 - (block.getRow() + drawnRow_)) * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
 			}
 		}
 	}
 
+	/**
+	 * Get the JavaFX color for one of the game's colors.
+	 * 
+	 * @param rgb the color, as 0xRRGGBB
+	 * @return the JavaFX color
+	 */
+	private Color toColor(int rgb) {
+		return colors_.computeIfAbsent(rgb, c -> Color.rgb(c >> 16 & 0xFF, c >> 8 & 0xFF, c & 0xFF));
+	}
+
 	/**
 	 * Get the current score.
 	 * 
@@ -143,7 +251,7 @@ public class Omino extends Application implements PropertyChangeListener {
 	 */
 	private int getScore() {
 		// return the current score
-		return game_.getScore();
+		return frame_.getScore();
 	}
 
 	/**
@@ -153,7 +261,7 @@ public class Omino extends Application implements PropertyChangeListener {
 	 */
 	private int getNumRowsCleared() {
 		// return the number of rows cleared
-		return game_.getClearedRows();
+		return frame_.getClearedRows();
 	}
 
 	/**
@@ -163,13 +271,11 @@ public class Omino extends Application implements PropertyChangeListener {
 	 */
 	private int getNumPiecesPlayed() {
 		// return the number of pieces played
-		return game_.getPiecesPlayed();
+		return frame_.getPiecesPlayed();
 	}
 
-	// ---------- no changes needed beyond this point --------------------------
-
 	// UI elements
-	private Timer timer_ = null; // timer for piece movements
+	private AnimationTimer renderer_ = null; // redraws once per frame
 	private Canvas boardcanvas_, piececanvas_; // for board and current piece
 	private Label score_, numrows_, numpieces_; // display of game stats
 
@@ -181,8 +287,24 @@ public class Omino extends Application implements PropertyChangeListener {
 	public void start(Stage stage) throws Exception {
 		stage.setTitle("Omino!");
 
+		Metrics.registerMBean();
+		Metrics.setEnabled(Boolean.getBoolean("omino.metrics"));
+		String csv = System.getProperty("omino.metrics.csv");
+		if (csv != null) {
+			Metrics.setEnabled(true);
+			Metrics.scheduleCsv(Paths.get(csv), METRICS_PERIOD);
+		}
+
 		game_ = new Game();
+		// game events only mark what needs redrawing; each game step arrives as a
+		// single event on the game thread
+		game_.setBatching(true);
+		// the renderer reads the game through its snapshots
+		game_.setSnapshots(true);
 		game_.addPropertyChangeListener(this);
+		loop_ = new GameLoop(game_);
+		loop_.setGravity(DELAY * 1_000_000);
+		loop_.start();
 
 		BorderPane root = new BorderPane();
 		root.setStyle("-fx-background-color: black");
@@ -219,32 +341,24 @@ public class Omino extends Application implements PropertyChangeListener {
 		// set up key listener
 		root.setOnKeyTyped(e -> handleKey(e.getCharacter().toLowerCase().charAt(0)));
 
+		frame_ = game_.getSnapshot();
+		drawBoard(boardcanvas_.getGraphicsContext2D());
+		// rendering runs once per frame on the application thread, apart from the
+		// game thread's simulation
+		renderer_ = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				render();
+			}
+		};
+		renderer_.start();
 		stage.show();
 	}
 
 	@Override
 	public void stop() {
-		stopTimer();
-	}
-
-	/**
-	 * Start the game play timer.
-	 */
-	private void startTimer() {
-		if (timer_ == null) {
-			timer_ = new Timer();
-			timer_.schedule(new MoveTask(), 0, DELAY);
-		}
-	}
-
-	/**
-	 * Stop the game play timer.
-	 */
-	private void stopTimer() {
-		if (timer_ != null) {
-			timer_.cancel();
-			timer_ = null;
-		}
+		renderer_.stop();
+		loop_.stop();
 	}
 
 	/**
@@ -259,21 +373,35 @@ public class Omino extends Application implements PropertyChangeListener {
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public void propertyChange(PropertyChangeEvent e) {
-		if (e.getPropertyName().equals(OminoSubject.BOARD_PROPERTY)) {
-			GraphicsContext g = boardcanvas_.getGraphicsContext2D();
-			g.clearRect(0, 0, boardcanvas_.getWidth(), boardcanvas_.getHeight());
-			drawBoard(g);
-		} else if (e.getPropertyName().equals(OminoSubject.CURPIECE_PROPERTY)) {
-			GraphicsContext g = piececanvas_.getGraphicsContext2D();
-			g.clearRect(0, 0, piececanvas_.getWidth(), piececanvas_.getHeight());
-			drawCurrentPiece(g);
-		} else if (e.getPropertyName().equals(OminoSubject.SCORE_PROPERTY)) {
-			score_.setText(String.format("%5s", "" + getScore()));
-		} else if (e.getPropertyName().equals(OminoSubject.NUMROWS_PROPERTY)) {
-			numrows_.setText(String.format("%5s", "" + getNumRowsCleared()));
-		} else if (e.getPropertyName().equals(OminoSubject.NUMPIECES_PROPERTY)) {
-			numpieces_.setText(String.format("%5s", "" + getNumPiecesPlayed()));
+		if (Metrics.isEnabled() || REPAINT_TYPE.isEnabled()) {
+			changedAt_.compareAndSet(0, System.nanoTime());
+		}
+		if (e.getPropertyName().equals(OminoSubject.BATCH_PROPERTY)) {
+			for (Map.Entry<String, Object> change : ((Map<String, Object>) e.getNewValue()).entrySet()) {
+				handleChange(change.getKey(), change.getValue());
+			}
+		} else {
+			handleChange(e.getPropertyName(), e.getNewValue());
+		}
+	}
+
+	/**
+	 * Records one change to the game for the next frame to draw.
+	 * 
+	 * @param name  the property that changed
+	 * @param value the description of the change
+	 */
+	private void handleChange(String name, Object value) {
+		if (name.equals(OminoSubject.BOARD_PROPERTY)) {
+			// only the rows the change affected are repainted
+			dirtyRows_.accumulateAndGet((RowRange) value, (rows, change) -> rows == null ? change : rows.union(change));
+		} else if (name.equals(OminoSubject.CURPIECE_PROPERTY)) {
+			dirty_.accumulateAndGet(PIECE_DIRTY, (flags, flag) -> flags | flag);
+		} else if (name.equals(OminoSubject.SCORE_PROPERTY) || name.equals(OminoSubject.NUMROWS_PROPERTY)
+				|| name.equals(OminoSubject.NUMPIECES_PROPERTY)) {
+			dirty_.accumulateAndGet(STATS_DIRTY, (flags, flag) -> flags | flag);
 		}
 	}
 }
\ No newline at end of file
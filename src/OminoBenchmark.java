@@ -0,0 +1,383 @@
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Micro-benchmarks for the hot paths of the Omino! engine: Board.canPlace,
+ * Board.getDropRow, Board.clearRows, Board.addPiece, Piece.getNextRotation,
+ * Polyomino.getBlocks, sequences of Game.movePiece and the moves of
+ * PlacementBot. Board benchmarks run over several board sizes and fill
+ * densities. Every workload is built from a fixed seed, so runs are comparable
+ * from one build to the next.
+ * 
+ * Each benchmark is warmed up and then timed over several iterations; the
+ * report gives the mean time per operation with its standard deviation across
+ * iterations, and the bytes allocated per operation as counted by the JVM for
+ * the benchmark thread. Operations that change a board, such as clearRows
+ * and addPiece, run on boards prepared before each batch, outside the timed
+ * region.
+ * 
+ * Usage: java OminoBenchmark [filter], where only benchmarks whose name
+ * contains filter are run.
+ * 
+ * @author Sayf Elhawary
+ */
+public class OminoBenchmark {
+
+	private static final long SEED = 0x0DDBA11L; // The seed of every workload.
+
+	private static final int[][] BOARD_SIZES = { { 10, 20 }, { 15, 30 },
+	                                             { 64, 256 }, { 1024, 4096 } };
+	// Board widths and heights.
+
+	private static final double[] DENSITIES = { 0.25, 0.5, 0.75 }; // The
+	                                                               // fraction of
+	                                                               // the board's
+	                                                               // height
+	                                                               // covered by
+	                                                               // the stack.
+
+	private static final int QUERIES = 1 << 10; // Precomputed inputs per
+	                                            // workload. A power of two.
+
+	private static final int BATCH = 1 << 10; // Operations timed together.
+
+	private static final int PREPARED_BATCH = 16; // Operations timed together
+	                                              // when each needs a board
+	                                              // prepared beforehand, one
+	                                              // board per operation.
+
+	private static final int WARMUP_ITERATIONS = 5, MEASURED_ITERATIONS = 5;
+
+	private static final long ITERATION_NANOS = 200_000_000L; // The length of
+	                                                          // an iteration.
+
+	private static final Piece BLOCK =
+	    new Polyomino(new String[] { "0 0" },0x808080).getPiece(0); // A single
+	                                                                // block for
+	                                                                // filling
+	                                                                // boards.
+
+	private static long sink_; // Results are folded in so the JIT cannot
+	                           // discard the work being measured.
+
+	/**
+	 * A benchmarked operation.
+	 */
+	private interface Operation {
+
+		/**
+		 * Performs the operation once.
+		 * 
+		 * @param i
+		 *          The number of the operation, for choosing inputs. i >= 0.
+		 * @return A result that depends on the work done.
+		 */
+		long run ( int i );
+
+	}
+
+	public static void main ( String[] args ) {
+		String filter = args.length > 0 ? args[0] : "";
+		Game game = new Game(SeededPieceGenerator.uniform(Game
+		    .getNumPolyominoes(),SEED));
+		Piece[] pieces = allPieces(game);
+		System.out.printf("%-24s %-18s %12s %10s %10s%n","benchmark","params",
+		                  "ns/op","+-","B/op");
+
+		for ( int[] size : BOARD_SIZES ) {
+			for ( double density : DENSITIES ) {
+				String params = size[0] + "x" + size[1] + " @" + density;
+				SplittableRandom random = new SplittableRandom(SEED);
+				Board template = filledBoard(size[0],size[1],density,random);
+				Board board = new Board(size[0],size[1]);
+				board.copyFrom(template);
+
+				Piece[] queryPieces = new Piece[QUERIES];
+				int[] queryRows = new int[QUERIES], queryCols = new int[QUERIES];
+				for ( int i = 0 ; i < QUERIES ; i++ ) {
+					queryPieces[i] = pieces[random.nextInt(pieces.length)];
+					queryRows[i] = random.nextInt(size[1]);
+					queryCols[i] =
+					    random.nextInt(size[0] - queryPieces[i].getPieceWidth() + 1);
+				}
+				int top = size[1] - 1;
+
+				run(filter,"Board.canPlace",params,
+				    i -> board.canPlace(queryPieces[i & (QUERIES - 1)],
+				                        queryRows[i & (QUERIES - 1)],
+				                        queryCols[i & (QUERIES - 1)]) ? 1 : 0);
+				run(filter,"Board.getDropRow",params,
+				    i -> board.getDropRow(queryPieces[i & (QUERIES - 1)],top,
+				                          queryCols[i & (QUERIES - 1)]));
+				run(filter,"Board.copyFrom",params,i -> {
+					board.copyFrom(template);
+					return 0;
+				});
+				// the boards are prepared outside the timed region, so only the
+				// operation itself is measured
+				Board full = withFullRows(template,(int) (size[1] * density),
+				                          size[1] / 8 + 1,random);
+				Board[] boards = new Board[PREPARED_BATCH];
+				for ( int i = 0 ; i < boards.length ; i++ ) {
+					boards[i] = new Board(size[0],size[1]);
+				}
+				run(filter,"Board.clearRows",params,
+				    i -> {
+					    boards[i % PREPARED_BATCH].copyFrom(full);
+					    return 0;
+				    },PREPARED_BATCH,i -> boards[i % PREPARED_BATCH].clearRows());
+				for ( Board prepared : boards ) {
+					prepared.copyFrom(template);
+				}
+				int[] dropRows = new int[PREPARED_BATCH];
+				run(filter,"Board.addPiece",params,i -> {
+					Board prepared = boards[i % PREPARED_BATCH];
+					Piece piece = queryPieces[i & (QUERIES - 1)];
+					int col = queryCols[i & (QUERIES - 1)];
+					prepared.clearRows();
+					int row = prepared.getDropRow(piece,top,col);
+					if ( !prepared.canPlace(piece,row,col) ) {
+						// the stack reached the top: start again from the template
+						prepared.copyFrom(template);
+						row = prepared.getDropRow(piece,top,col);
+					}
+					dropRows[i % PREPARED_BATCH] = row;
+					return 0;
+				},PREPARED_BATCH,i -> {
+					boards[i % PREPARED_BATCH]
+					    .addPiece(queryPieces[i & (QUERIES - 1)],
+					              dropRows[i % PREPARED_BATCH],
+					              queryCols[i & (QUERIES - 1)]);
+					return dropRows[i % PREPARED_BATCH];
+				});
+			}
+		}
+
+		run(filter,"Piece.getNextRotation","",i -> {
+			return pieces[i % pieces.length].getNextRotation().getPieceWidth();
+		});
+		Polyomino[] polyominoes = new Polyomino[Game.getNumPolyominoes()];
+		for ( int i = 0 ; i < polyominoes.length ; i++ ) {
+			polyominoes[i] = game.getPolyomino(i);
+		}
+		run(filter,"Polyomino.getBlocks","",i -> {
+			Polyomino polyomino = polyominoes[i % polyominoes.length];
+			return polyomino.getBlocks(i % polyomino.getNumRotations()).length;
+		});
+
+		RandomPolicy policy = new RandomPolicy(SEED);
+		game.start();
+		run(filter,"Game.movePiece","15x30 random",i -> {
+			if ( game.getGameOver() ) {
+				game.reset();
+				game.start();
+			}
+			// every fourth move is gravity, as in the simulator
+			Action action = (i & 3) == 3 ? Action.DOWN : policy.nextAction(game);
+			game.movePiece(action);
+			return game.getCurrentPieceRow();
+		});
+
+		Game botGame = new Game(SeededPieceGenerator.uniform(Game
+		    .getNumPolyominoes(),SEED));
+		PlacementBot bot = new PlacementBot();
+		botGame.start();
+		run(filter,"PlacementBot.nextAction","15x30 game",i -> {
+			if ( botGame.getGameOver() ) {
+				botGame.reset();
+				botGame.start();
+			}
+			Action action = bot.nextAction(botGame);
+			botGame.movePiece(action == null ? Action.DOWN : action);
+			return botGame.getPiecesPlayed();
+		});
+
+		if ( sink_ == 42 ) {
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Warms up and times one benchmark and prints the result, unless it is
+	 * filtered out.
+	 * 
+	 * @param filter
+	 *          Only benchmarks whose name contains the filter are run.
+	 * @param name
+	 *          The name of the benchmark.
+	 * @param params
+	 *          A description of the benchmark's parameters.
+	 * @param operation
+	 *          The benchmarked operation.
+	 */
+	private static void run ( String filter, String name, String params,
+	                          Operation operation ) {
+		run(filter,name,params,null,BATCH,operation);
+	}
+
+	/**
+	 * Warms up and times one benchmark whose operations each need preparing,
+	 * and prints the result, unless it is filtered out. Before every batch, the
+	 * whole batch is prepared; only the operations are timed.
+	 * 
+	 * @param filter
+	 *          Only benchmarks whose name contains the filter are run.
+	 * @param name
+	 *          The name of the benchmark.
+	 * @param params
+	 *          A description of the benchmark's parameters.
+	 * @param setup
+	 *          Prepares the operation with the same number, or null if nothing
+	 *          needs preparing.
+	 * @param batch
+	 *          The number of operations prepared and timed together. batch > 0.
+	 * @param operation
+	 *          The benchmarked operation.
+	 */
+	private static void run ( String filter, String name, String params,
+	                          Operation setup, int batch, Operation operation ) {
+		if ( !name.contains(filter) ) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads =
+		    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long next = 0;
+		for ( int i = 0 ; i < WARMUP_ITERATIONS ; i++ ) {
+			next = iterate(setup,batch,operation,next)[1];
+		}
+		double[] nanosPerOp = new double[MEASURED_ITERATIONS];
+		long ops = 0;
+		long allocated = threads.getCurrentThreadAllocatedBytes();
+		for ( int i = 0 ; i < MEASURED_ITERATIONS ; i++ ) {
+			long start = next;
+			long[] result = iterate(setup,batch,operation,next);
+			next = result[1];
+			nanosPerOp[i] = (double) result[0] / (next - start);
+			ops += next - start;
+		}
+		allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+		double mean = 0, variance = 0;
+		for ( double value : nanosPerOp ) {
+			mean += value / nanosPerOp.length;
+		}
+		for ( double value : nanosPerOp ) {
+			variance += (value - mean) * (value - mean) / nanosPerOp.length;
+		}
+		System.out.printf("%-24s %-18s %12.2f %10.2f %10.2f%n",name,params,mean,
+		                  Math.sqrt(variance),(double) allocated / ops);
+	}
+
+	/**
+	 * Runs batches of an operation for one iteration.
+	 * 
+	 * @param setup
+	 *          Prepares the operation with the same number, untimed, or null.
+	 * @param batch
+	 *          The number of operations prepared and timed together.
+	 * @param operation
+	 *          The benchmarked operation.
+	 * @param next
+	 *          The number of the first operation.
+	 * @return The nanoseconds spent in the operations and the number of the
+	 *         operation after the last one run.
+	 */
+	private static long[] iterate ( Operation setup, int batch,
+	                                Operation operation, long next ) {
+		long sink = 0;
+		long elapsed = 0;
+		do {
+			if ( setup != null ) {
+				for ( int i = 0 ; i < batch ; i++ ) {
+					setup.run((int) (next + i & Integer.MAX_VALUE));
+				}
+			}
+			long start = System.nanoTime();
+			for ( int i = 0 ; i < batch ; i++ ) {
+				sink += operation.run((int) (next++ & Integer.MAX_VALUE));
+			}
+			elapsed += System.nanoTime() - start;
+		} while ( elapsed < ITERATION_NANOS );
+		sink_ += sink;
+		return new long[] { elapsed, next };
+	}
+
+	/**
+	 * Gets every orientation of every polyomino of a game.
+	 * 
+	 * @param game
+	 *          The game.
+	 * @return The pieces.
+	 */
+	private static Piece[] allPieces ( Game game ) {
+		int count = 0;
+		for ( int i = 0 ; i < Game.getNumPolyominoes() ; i++ ) {
+			count += game.getPolyomino(i).getNumRotations();
+		}
+		Piece[] pieces = new Piece[count];
+		count = 0;
+		for ( int i = 0 ; i < Game.getNumPolyominoes() ; i++ ) {
+			Polyomino polyomino = game.getPolyomino(i);
+			for ( int j = 0 ; j < polyomino.getNumRotations() ; j++ ) {
+				pieces[count++] = polyomino.getPiece(j);
+			}
+		}
+		return pieces;
+	}
+
+	/**
+	 * Creates a board with a random stack and no full rows. Each cell of the
+	 * stack is filled with probability 0.7, leaving at least one hole per row.
+	 * 
+	 * @param width
+	 *          The board's width.
+	 * @param height
+	 *          The board's height.
+	 * @param density
+	 *          The fraction of the board's height covered by the stack.
+	 * @param random
+	 *          The source of randomness.
+	 * @return The board.
+	 */
+	private static Board filledBoard ( int width, int height, double density,
+	                                   SplittableRandom random ) {
+		Piece[][] cells = new Piece[height][width];
+		for ( int i = 0 ; i < (int) (height * density) ; i++ ) {
+			int hole = random.nextInt(width);
+			for ( int j = 0 ; j < width ; j++ ) {
+				if ( j != hole && random.nextDouble() < 0.7 ) {
+					cells[i][j] = BLOCK;
+				}
+			}
+		}
+		return new Board(cells);
+	}
+
+	/**
+	 * Creates a copy of a board with some rows of its stack filled all the way
+	 * across.
+	 * 
+	 * @param template
+	 *          The board to copy.
+	 * @param stack
+	 *          The number of rows in the template's stack.
+	 * @param rows
+	 *          The number of rows to fill.
+	 * @param random
+	 *          The source of randomness.
+	 * @return The board.
+	 */
+	private static Board withFullRows ( Board template, int stack, int rows,
+	                                    SplittableRandom random ) {
+		Board board = new Board(template.getBoardWidth(),template.getBoardHeight());
+		board.copyFrom(template);
+		for ( int i = 0 ; i < rows ; i++ ) {
+			int row = random.nextInt(Math.max(1,stack));
+			for ( int j = 0 ; j < board.getBoardWidth() ; j++ ) {
+				board.addPiece(BLOCK,row,j);
+			}
+		}
+		return board;
+	}
+
+}
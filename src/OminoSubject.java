@@ -1,10 +1,25 @@
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-
-import javafx.application.Platform;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
- * Provides support for the Observer pattern for Omino!.
+ * Provides support for the Observer pattern for Omino!. Events are delivered
+ * synchronously on the thread that fired them unless a dispatcher is set, and
+ * are not delivered at all when nobody is listening, so the game logic runs
+ * without any UI toolkit.
+ * 
+ * In batching mode, the changes made during one game step are coalesced and
+ * published as a single BATCH_PROPERTY event whose new value maps each changed
+ * property to its latest value (board row ranges are merged), so a UI thread
+ * gets one dispatch per step instead of one per property.
+ * 
+ * When Metrics are on, the lag from a change being fired (for a batch, its
+ * first change) to its listeners starting is recorded as
+ * "OminoSubject.dispatchLag", and the time the listeners take as
+ * "OminoSubject.listeners".
  * 
  * @author Sayf Elhawary
  */
@@ -13,12 +28,62 @@ public class OminoSubject {
 	// properties
 	public static final String SCORE_PROPERTY = "score",
 	    NUMROWS_PROPERTY = "numrows", NUMPIECES_PROPERTY = "numpieces",
-	    CURPIECE_PROPERTY = "curpiece", BOARD_PROPERTY = "board";
+	    CURPIECE_PROPERTY = "curpiece", BOARD_PROPERTY = "board",
+	    BATCH_PROPERTY = "batch";
+
+	private static final Histogram DISPATCH_LAG =
+	    Metrics.histogram("OminoSubject.dispatchLag"); // The time from a change
+	                                                    // to its listeners.
+
+	private static final Histogram LISTENER_TIMES =
+	    Metrics.histogram("OminoSubject.listeners"); // The time the listeners
+	                                                  // take for an event.
 
 	private PropertyChangeSupport support_;
 
+	private Executor dispatcher_; // Runs listener notifications, or null to
+	                              // notify listeners directly.
+
+	private boolean batching_; // Whether changes are coalesced into batches.
+
+	private int batchDepth_; // The number of open batches. batchDepth_ >= 0.
+
+	private Map<String,Object> pending_; // The changes of the open batch, in the
+	                                     // order they were first made.
+
+	private long batchFired_; // The time the open batch's first change was
+	                          // made, or 0 if untimed.
+
 	public OminoSubject () {
 		support_ = new PropertyChangeSupport(this);
+		dispatcher_ = null;
+		batching_ = false;
+		batchDepth_ = 0;
+		pending_ = new LinkedHashMap<>();
+		batchFired_ = 0;
+	}
+
+	/**
+	 * Sets whether the changes made during a game step are published together as
+	 * one BATCH_PROPERTY event instead of one event per change.
+	 * 
+	 * @param batching
+	 *          True to publish batches, false to publish every change.
+	 */
+	public void setBatching ( boolean batching ) {
+		batching_ = batching;
+	}
+
+	/**
+	 * Sets the executor that listener notifications are handed to, such as the
+	 * UI toolkit's application thread.
+	 * 
+	 * @param dispatcher
+	 *          The desired dispatcher, or null to notify listeners synchronously
+	 *          on the firing thread.
+	 */
+	public void setDispatcher ( Executor dispatcher ) {
+		dispatcher_ = dispatcher;
 	}
 
 	/**
@@ -37,11 +102,124 @@ public class OminoSubject {
 		support_.removePropertyChangeListener(arg0);
 	}
 
+	/**
+	 * Notifies listeners that a property changed. The event's new value is this
+	 * subject.
+	 * 
+	 * @param propertyName
+	 *          The property that changed.
+	 */
 	public void firePropertyChange ( String propertyName ) {
-		// since this property change is going to result in a GUI update, we make
-		// sure it is handled in the application thread
-		Platform
-		    .runLater( () -> support_.firePropertyChange(propertyName,null,this));
+		firePropertyChange(propertyName,this);
+	}
+
+	/**
+	 * Notifies listeners that a property changed, with a description of the
+	 * change as the event's new value, such as the RowRange of a board change.
+	 * 
+	 * @param propertyName
+	 *          The property that changed.
+	 * @param value
+	 *          The description of the change.
+	 */
+	public void firePropertyChange ( String propertyName, Object value ) {
+		if ( !support_.hasListeners(propertyName) ) {
+			return;
+		}
+		if ( batchDepth_ > 0 ) {
+			if ( pending_.isEmpty() ) {
+				batchFired_ = Metrics.isEnabled() ? System.nanoTime() : 0;
+			}
+			pending_.merge(propertyName,value,OminoSubject::coalesce);
+			return;
+		}
+		dispatch(propertyName,value,Metrics.isEnabled() ? System.nanoTime() : 0);
+	}
+
+	/**
+	 * Starts collecting changes into a batch, if batching is on. Batches may be
+	 * nested; the changes are published when the outermost batch ends.
+	 */
+	protected void beginBatch () {
+		if ( batching_ ) {
+			batchDepth_++;
+		}
+	}
+
+	/**
+	 * Ends a batch started by beginBatch, publishing the collected changes as a
+	 * single event if it is the outermost batch.
+	 */
+	protected void endBatch () {
+		if ( batchDepth_ == 0 ) {
+			return;
+		}
+		batchDepth_--;
+		if ( batchDepth_ == 0 && !pending_.isEmpty() ) {
+			Map<String,Object> changes = Collections.unmodifiableMap(pending_);
+			pending_ = new LinkedHashMap<>();
+			dispatch(BATCH_PROPERTY,changes,batchFired_);
+		}
+	}
+
+	/**
+	 * Delivers an event to the listeners, through the dispatcher if there is
+	 * one.
+	 * 
+	 * @param propertyName
+	 *          The property that changed.
+	 * @param value
+	 *          The description of the change.
+	 * @param fired
+	 *          The System.nanoTime() the change was made at, or 0 if it is not
+	 *          timed.
+	 */
+	private void dispatch ( String propertyName, Object value, long fired ) {
+		if ( dispatcher_ == null ) {
+			notifyListeners(propertyName,value,fired);
+		} else {
+			dispatcher_.execute( () -> notifyListeners(propertyName,value,fired));
+		}
+	}
+
+	/**
+	 * Runs the listeners of an event, timing them if the change was timed.
+	 * 
+	 * @param propertyName
+	 *          The property that changed.
+	 * @param value
+	 *          The description of the change.
+	 * @param fired
+	 *          The System.nanoTime() the change was made at, or 0 if it is not
+	 *          timed.
+	 */
+	private void notifyListeners ( String propertyName, Object value,
+	                               long fired ) {
+		if ( fired == 0 ) {
+			support_.firePropertyChange(propertyName,null,value);
+			return;
+		}
+		long start = System.nanoTime();
+		DISPATCH_LAG.record(start - fired);
+		support_.firePropertyChange(propertyName,null,value);
+		LISTENER_TIMES.recordSince(start);
+	}
+
+	/**
+	 * Combines two changes to the same property within a batch.
+	 * 
+	 * @param older
+	 *          The earlier change.
+	 * @param newer
+	 *          The later change.
+	 * @return The combined change: the union of two row ranges, otherwise the
+	 *         later change.
+	 */
+	private static Object coalesce ( Object older, Object newer ) {
+		if ( older instanceof RowRange && newer instanceof RowRange ) {
+			return ((RowRange) older).union((RowRange) newer);
+		}
+		return newer;
 	}
 
 }
@@ -0,0 +1,147 @@
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tester for the event batching of OminoSubject and the snapshots a game
+ * publishes after each step.
+ * 
+ * @author Sayf Elhawary
+ */
+public class OminoSubjectTester {
+
+	public static void main(String[] args) {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: firePropertyChange - one event per change
+			// starting state: game with batching off
+			// input: n/a
+			// expected result: true
+			System.out.println("firePropertyChange - one event per change");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42));
+			List<PropertyChangeEvent> events = new ArrayList<>();
+			game.addPropertyChangeListener(events::add);
+			game.start();
+			game.movePiece(Action.DROP);
+			game.movePiece(Action.DOWN); // lands the piece
+			boolean test = events.size() > 3;
+			for (PropertyChangeEvent event : events) {
+				if (event.getPropertyName().equals(OminoSubject.BATCH_PROPERTY)) {
+					test = false;
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: setBatching - one event per step
+			// starting state: game with batching on
+			// input: batching - true
+			// expected result: true
+			System.out.println("setBatching - one event per step");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42));
+			game.setBatching(true);
+			List<PropertyChangeEvent> events = new ArrayList<>();
+			game.addPropertyChangeListener(events::add);
+			game.start();
+			game.movePiece(Action.DROP);
+			game.movePiece(Action.DOWN); // lands the piece
+			boolean test = events.size() == 3;
+			for (PropertyChangeEvent event : events) {
+				if (!event.getPropertyName().equals(OminoSubject.BATCH_PROPERTY)) {
+					test = false;
+				}
+			}
+			if (test) {
+				Map<?, ?> changes = (Map<?, ?>) events.get(2).getNewValue();
+				test = changes.containsKey(OminoSubject.BOARD_PROPERTY) && changes.containsKey(OminoSubject.SCORE_PROPERTY)
+				    && changes.containsKey(OminoSubject.CURPIECE_PROPERTY);
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: endBatch - row ranges are merged
+			// starting state: subject with batching on
+			// input: rows 3 to 4, then rows 8 to 9
+			// expected result: rows 3 to 9
+			System.out.println("endBatch - row ranges are merged");
+			System.out.println();
+			OminoSubject subject = new OminoSubject();
+			subject.setBatching(true);
+			List<PropertyChangeEvent> events = new ArrayList<>();
+			subject.addPropertyChangeListener(events::add);
+			subject.beginBatch();
+			subject.firePropertyChange(OminoSubject.BOARD_PROPERTY, new RowRange(3, 4));
+			subject.firePropertyChange(OminoSubject.BOARD_PROPERTY, new RowRange(8, 9));
+			boolean test = events.isEmpty();
+			subject.endBatch();
+			if (test && events.size() == 1) {
+				RowRange rows = (RowRange) ((Map<?, ?>) events.get(0).getNewValue()).get(OminoSubject.BOARD_PROPERTY);
+				test = rows.getLow() == 3 && rows.getHigh() == 9;
+			} else {
+				test = false;
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: setSnapshots - published only when on
+			// starting state: started game
+			// input: a DROP and a DOWN with snapshots off, then snapshots on and
+			// the same moves again
+			// expected result: no snapshot while they are off, then snapshots of
+			// the state after each step
+			System.out.println("setSnapshots - published only when on");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42));
+			game.start();
+			game.movePiece(Action.DROP);
+			game.movePiece(Action.DOWN); // lands the piece
+			boolean test = game.getSnapshot() == null;
+			game.setSnapshots(true);
+			GameSnapshot first = game.getSnapshot();
+			test = test && first != null && first.getPiecesPlayed() == game.getPiecesPlayed()
+			    && first.getBoard().getStackHeight() == game.getBoard().getStackHeight();
+			game.movePiece(Action.DROP);
+			game.movePiece(Action.DOWN); // lands the piece
+			GameSnapshot second = game.getSnapshot();
+			test = test && second != first && second.getPiecesPlayed() == game.getPiecesPlayed()
+			    && second.getScore() == game.getScore() && second.getBoard() != first.getBoard();
+			game.setSnapshots(false);
+			game.movePiece(Action.DOWN);
+			test = test && game.getSnapshot() == null;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+}
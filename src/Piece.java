@@ -1,4 +1,4 @@
-import javafx.scene.paint.Color;
+import java.util.Arrays;
 
 /**
  * Piece represents a particular orientation of a particular polyomino.
@@ -21,6 +21,9 @@ public class Piece {
 
 	private int[] skirt_; // The lower edge of the piece.
 
+	private long[] rowMasks_; // The occupancy of each row of the piece, bit col
+	                          // is set if the piece has a block at (row, col).
+
 	/**
 	 * Creates a piece according to the desired polyomino and orientation.
 	 * 
@@ -38,7 +41,8 @@ public class Piece {
 		orientation_ = index;
 		pieceWidth_ = computeWidth(body_);
 		pieceHeight_ = computeHeight(body_);
-		skirt_ = getSkirt(polyomino.getBlocks(index));
+		skirt_ = getSkirt(body_);
+		rowMasks_ = computeRowMasks(body_);
 	}
 
 	/**
@@ -71,22 +75,23 @@ public class Piece {
 	/**
 	 * Gets the piece's color.
 	 * 
-	 * @return The peice's color.
+	 * @return The peice's color, as 0xRRGGBB.
 	 */
-	public Color getPieceColor () {
+	public int getPieceColor () {
 		return polyomino_.getPolyominoColor();
 	}
 
 	/**
 	 * Gets the next rotation of the piece.
 	 * 
-	 * @return A new piece representing the next rotation of this piece.
+	 * @return The polyomino's shared piece representing the next rotation of
+	 *         this piece.
 	 */
 	public Piece getNextRotation () {
 		if ( orientation_ == polyomino_.getNumRotations() - 1 ) {
-			return new Piece(polyomino_,0);
+			return polyomino_.getPiece(0);
 		}
-		return new Piece(polyomino_,orientation_ + 1);
+		return polyomino_.getPiece(orientation_ + 1);
 	}
 
 	/**
@@ -139,7 +144,8 @@ public class Piece {
 	}
 
 	/**
-	 * Gets the piece's skirt.
+	 * Gets the piece's skirt: the lowest row of the piece in each column. A
+	 * column without any block has a skirt of Integer.MAX_VALUE.
 	 * 
 	 * @param blocks
 	 *          the desired block array.
@@ -147,23 +153,49 @@ public class Piece {
 	 */
 	private int[] getSkirt ( Block[] blocks ) {
 		int[] pieceSkirt = new int[pieceWidth_];
-		int size = 0;
+		Arrays.fill(pieceSkirt,Integer.MAX_VALUE);
 		for ( int i = 0 ; i < blocks.length ; i++ ) {
-			if ( size == pieceWidth_ ) {
-				break;
-			}
-			pieceSkirt[size] = blocks[i].getRow();
-			size++;
-			for ( int j = i + 1 ; j < blocks.length ; j++ ) {
-				if ( blocks[i].getCol() == blocks[j].getCol()
-				    && blocks[i].getRow() > blocks[j].getRow() ) {
-					size--;
-				}
+			if ( pieceSkirt[blocks[i].getCol()] > blocks[i].getRow() ) {
+				pieceSkirt[blocks[i].getCol()] = blocks[i].getRow();
 			}
 		}
 		return pieceSkirt;
 	}
 
+	/**
+	 * Calculates the occupancy mask of each row of the piece.
+	 * 
+	 * @param blocks
+	 *          The piece's body that will be calculated.
+	 * @return The row masks of the piece, one per row of the piece.
+	 */
+	private long[] computeRowMasks ( Block[] blocks ) {
+		if ( pieceWidth_ > Long.SIZE ) {
+			throw new IllegalArgumentException("A piece cannot be more than "
+			    + Long.SIZE + " blocks wide.");
+		}
+		long[] rowMasks = new long[pieceHeight_];
+		for ( int i = 0 ; i < blocks.length ; i++ ) {
+			if ( blocks[i].getRow() < 0 || blocks[i].getCol() < 0 ) {
+				throw new IllegalArgumentException("The blocks of a piece cannot have negative coordinates.");
+			}
+			rowMasks[blocks[i].getRow()] |= 1L << blocks[i].getCol();
+		}
+		return rowMasks;
+	}
+
+	/**
+	 * Gets the occupancy mask of a row of the piece: bit col is set if the piece
+	 * has a block at (row, col).
+	 * 
+	 * @param row
+	 *          The row of the piece. row >= 0 and row < getPieceHeight().
+	 * @return The occupancy mask of the row.
+	 */
+	long getRowMask ( int row ) {
+		return rowMasks_[row];
+	}
+
 	/**
 	 * Gets the piece's orientation.
 	 * 
@@ -172,4 +204,13 @@ public class Piece {
 	int getOrientation () {
 		return orientation_;
 	}
+
+	/**
+	 * Gets the piece's polyomino.
+	 * 
+	 * @return The piece's polyomino.
+	 */
+	Polyomino getPolyomino () {
+		return polyomino_;
+	}
 }
@@ -0,0 +1,15 @@
+/**
+ * Chooses the sequence of polyominos played in a game of Omino!.
+ * 
+ * @author Sayf Elhawary
+ */
+public interface PieceGenerator {
+
+	/**
+	 * Chooses the next polyomino.
+	 * 
+	 * @return The index of the next polyomino in the game's polyomino set.
+	 */
+	int next ();
+
+}
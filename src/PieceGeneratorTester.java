@@ -0,0 +1,152 @@
+import java.util.SplittableRandom;
+
+/**
+ * Tester for SeededPieceGenerator and PieceQueue.
+ * 
+ * @author Sayf Elhawary
+ */
+public class PieceGeneratorTester {
+
+	public static void main(String[] args) {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+		int count = 7;
+		long seed = 42;
+
+		{
+			// name: random - matches SplittableRandom
+			// starting state: n/a
+			// input: seed - 42
+			// expected result: the same numbers as SplittableRandom.nextLong
+			System.out.println("random - matches SplittableRandom");
+			System.out.println();
+			SplittableRandom random = new SplittableRandom(seed);
+			boolean test = true;
+			for (int i = 0; i < 100; i++) {
+				if (random.nextLong() != SeededPieceGenerator.random(seed, i)) {
+					test = false;
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: uniform - same seed, same pieces
+			// starting state: n/a
+			// input: count - 7
+			// seed - 42
+			// expected result: true
+			System.out.println("uniform - same seed, same pieces");
+			System.out.println();
+			SeededPieceGenerator generator1 = SeededPieceGenerator.uniform(count, seed);
+			SeededPieceGenerator generator2 = SeededPieceGenerator.uniform(count, seed);
+			boolean test = true;
+			for (int i = 0; i < 1000; i++) {
+				int next = generator1.next();
+				if (next != generator2.next() || next < 0 || next >= count) {
+					test = false;
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: bag - every polyomino once per bag
+			// starting state: n/a
+			// input: count - 7
+			// copies - 1
+			// seed - 42
+			// expected result: true
+			System.out.println("bag - every polyomino once per bag");
+			System.out.println();
+			SeededPieceGenerator generator = SeededPieceGenerator.bag(count, 1, seed);
+			boolean test = true;
+			for (int i = 0; i < 100; i++) {
+				boolean[] seen = new boolean[count];
+				for (int j = 0; j < count; j++) {
+					int next = generator.next();
+					if (seen[next]) {
+						test = false;
+					}
+					seen[next] = true;
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: seek - same pieces as generating in order
+			// starting state: generator
+			// input: position - 53
+			// expected result: true
+			System.out.println("seek - same pieces as generating in order");
+			System.out.println();
+			SeededPieceGenerator generator1 = SeededPieceGenerator.bag(count, 2, seed);
+			SeededPieceGenerator generator2 = SeededPieceGenerator.bag(count, 2, seed);
+			for (int i = 0; i < 53; i++) {
+				generator1.next();
+			}
+			generator2.seek(53);
+			boolean test = generator2.getPosition() == 53;
+			for (int i = 0; i < 100; i++) {
+				if (generator1.next() != generator2.next()) {
+					test = false;
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: PieceQueue - peek previews next
+			// starting state: queue
+			// input: lookahead - 3
+			// expected result: true
+			System.out.println("PieceQueue - peek previews next");
+			System.out.println();
+			PieceQueue queue = new PieceQueue(SeededPieceGenerator.uniform(count, seed), 3);
+			SeededPieceGenerator generator = SeededPieceGenerator.uniform(count, seed);
+			boolean test = true;
+			for (int i = 0; i < 20; i++) {
+				int peek = queue.peek(2);
+				queue.next();
+				queue.next();
+				generator.next();
+				generator.next();
+				if (queue.next() != peek || peek != generator.next()) {
+					test = false;
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+}
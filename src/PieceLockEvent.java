@@ -0,0 +1,39 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for a piece locking into the board, lasting
+ * from adding the piece through clearing rows and scoring.
+ * 
+ * @author Sayf Elhawary
+ */
+@Name("omino.PieceLock")
+@Label("Piece Lock")
+@Category({ "Omino", "Engine" })
+@Description("A piece lands and is added to the board")
+@StackTrace(false)
+public class PieceLockEvent extends jdk.jfr.Event {
+
+	@Label("Polyomino")
+	int polyomino; // The index of the piece's polyomino.
+
+	@Label("Row")
+	int row; // The row the piece landed at.
+
+	@Label("Column")
+	int col; // The column the piece landed at.
+
+	@Label("Rows Cleared")
+	int rowsCleared; // The number of rows the piece completed.
+
+	@Label("Stack Height")
+	@Description("One more than the highest occupied row, after clearing")
+	int stackHeight; // The height of the stack after the piece locked.
+
+	@Label("Board Height")
+	int boardHeight; // The board's height, in blocks.
+
+}
@@ -0,0 +1,138 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A queue of upcoming polyominos, prefetched from a piece generator so that
+ * the next few pieces can be previewed.
+ * 
+ * @author Sayf Elhawary
+ */
+public class PieceQueue {
+
+	private PieceGenerator generator_; // The source of the pieces.
+
+	private int[] upcoming_; // A ring buffer of the prefetched pieces.
+
+	private int head_; // The position of the next piece in upcoming_.
+
+	private long taken_; // The number of pieces taken from the queue.
+
+	/**
+	 * Creates a queue that keeps the desired number of pieces prefetched.
+	 * 
+	 * @param generator
+	 *          The source of the pieces.
+	 * @param lookahead
+	 *          The number of upcoming pieces that can be previewed. lookahead >=
+	 *          1.
+	 */
+	public PieceQueue ( PieceGenerator generator, int lookahead ) {
+		if ( lookahead < 1 ) {
+			throw new IllegalArgumentException("Input a number more than zero.");
+		}
+		generator_ = generator;
+		upcoming_ = new int[lookahead];
+		for ( int i = 0 ; i < lookahead ; i++ ) {
+			upcoming_[i] = generator.next();
+		}
+		head_ = 0;
+		taken_ = 0;
+	}
+
+	/**
+	 * Takes the next piece from the queue and prefetches another one.
+	 * 
+	 * @return The index of the next polyomino.
+	 */
+	public int next () {
+		int next = upcoming_[head_];
+		upcoming_[head_] = generator_.next();
+		head_ = (head_ + 1) % upcoming_.length;
+		taken_++;
+		return next;
+	}
+
+	/**
+	 * Previews an upcoming piece without taking it.
+	 * 
+	 * @param index
+	 *          How far ahead to look; 0 is the piece next() would return. index
+	 *          >= 0 and index < getLookahead().
+	 * @return The index of the upcoming polyomino.
+	 */
+	public int peek ( int index ) {
+		if ( index < 0 || index >= upcoming_.length ) {
+			throw new IllegalArgumentException("The index is out of bounds. Please try again.");
+		}
+		return upcoming_[(head_ + index) % upcoming_.length];
+	}
+
+	/**
+	 * Gets the number of upcoming pieces that can be previewed.
+	 * 
+	 * @return The number of upcoming pieces that can be previewed.
+	 */
+	public int getLookahead () {
+		return upcoming_.length;
+	}
+
+	/**
+	 * Gets the source of the pieces.
+	 * 
+	 * @return The piece generator.
+	 */
+	public PieceGenerator getGenerator () {
+		return generator_;
+	}
+
+	/**
+	 * Gets the number of pieces taken from the queue so far.
+	 * 
+	 * @return The number of pieces taken.
+	 */
+	public long getTaken () {
+		return taken_;
+	}
+
+	/**
+	 * Gets the number of bytes write puts.
+	 * 
+	 * @return The number of bytes.
+	 */
+	int getStateSize () {
+		return Integer.BYTES * (upcoming_.length + 1) + Long.BYTES;
+	}
+
+	/**
+	 * Writes the queue's contents to a buffer: the lookahead, the upcoming
+	 * pieces in order and the number of pieces taken.
+	 * 
+	 * @param buffer
+	 *          The buffer, with at least getStateSize() bytes remaining.
+	 */
+	void write ( ByteBuffer buffer ) {
+		buffer.putInt(upcoming_.length);
+		for ( int i = 0 ; i < upcoming_.length ; i++ ) {
+			buffer.putInt(peek(i));
+		}
+		buffer.putLong(taken_);
+	}
+
+	/**
+	 * Replaces the queue's contents with ones written by write. The generator is
+	 * not used; it must already be positioned after the pieces read.
+	 * 
+	 * @param buffer
+	 *          The buffer, positioned at the contents.
+	 */
+	void read ( ByteBuffer buffer ) {
+		if ( buffer.getInt() != upcoming_.length ) {
+			throw new IllegalArgumentException("The queue's lookahead does not match.");
+		}
+		for ( int i = 0 ; i < upcoming_.length ; i++ ) {
+			upcoming_[i] = buffer.getInt();
+		}
+		head_ = 0;
+		taken_ = buffer.getLong();
+	}
+
+}
@@ -0,0 +1,34 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for a new piece entering play, lasting as long
+ * as Game.startNewPiece takes to deal it. Event fields are named without the
+ * usual trailing underscore because JFR reports fields by their Java names.
+ * 
+ * @author Sayf Elhawary
+ */
+@Name("omino.PieceSpawn")
+@Label("Piece Spawn")
+@Category({ "Omino", "Engine" })
+@Description("A new piece is dealt and placed above the board")
+@StackTrace(false)
+public class PieceSpawnEvent extends jdk.jfr.Event {
+
+	@Label("Polyomino")
+	int polyomino; // The index of the piece's polyomino.
+
+	@Label("Pieces Played")
+	int piecesPlayed; // The number of pieces played, including this one.
+
+	@Label("Stack Height")
+	@Description("One more than the highest occupied row")
+	int stackHeight; // The height of the stack when the piece entered.
+
+	@Label("Board Height")
+	int boardHeight; // The board's height, in blocks.
+
+}
@@ -1,5 +1,3 @@
-import javafx.scene.paint.Color;
-
 /**
  * Tester for Piece.
  * 
@@ -14,7 +12,7 @@ public class PieceTester {
 		System.out.println("assertions are on: " + assertsEnabled);
 		System.out.println();
 		String[] orientations = { "0 0  0 1  0 2", "0 0  1 0  2 0" };
-		Color color = Color.AQUAMARINE;
+		int color = 0x7FFFD4; // aquamarine
 		Polyomino polyomino = new Polyomino(orientations, color);
 		{
 			// name: Piece
@@ -58,6 +56,22 @@ public class PieceTester {
 			System.out.println();
 		}
 		
+		{
+			// name: getNextRotation - shared instances
+			// starting state: piece
+			// input: n/a
+			// expected result: the same piece for the same orientation
+			System.out.println("getNextRotation - shared instances");
+			System.out.println();
+			Piece piece = polyomino.getPiece(0);
+			if (piece.getNextRotation() == piece.getNextRotation() && piece.getNextRotation().getNextRotation() == piece) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
 		{
 			// name: getPieceSkirt
 			// starting state: piece
@@ -0,0 +1,423 @@
+import java.util.stream.IntStream;
+
+/**
+ * A move policy that searches every final placement of the current piece and
+ * plays the best one. A placement is an orientation and a column; the piece is
+ * dropped straight down from the top of the board with Board.getDropRow, any
+ * full rows are cleared, and the resulting board is scored with a weighted sum
+ * of its aggregate column height, rows cleared, holes (empty cells below the
+ * surface of their column) and bumpiness (the differences between neighbouring
+ * columns). Placements that would stick out of the top of the board are never
+ * chosen.
+ * 
+ * The bot can look ahead to the upcoming pieces, scoring a placement by the
+ * best placements of the pieces that follow it. The scores of the positions
+ * reached on the way can be cached in a TranspositionTable, keyed on the
+ * board's hash and the pieces still to be placed.
+ * 
+ * Placements are evaluated on scratch boards that are reused from one
+ * decision to the next, so the search allocates nothing per candidate. Each
+ * distinct orientation of the current piece is searched by its own task, and
+ * large enough searches run the orientations in parallel. Orientations that
+ * repeat an earlier one's blocks, like the turns of a square, are skipped.
+ * 
+ * Once a placement is chosen, the bot returns one action per call: down until
+ * the piece is on the board, then rotations, then moves left or right, then a
+ * drop and a final down to land the piece. A move that is blocked is given up
+ * and the piece is dropped where it is.
+ * 
+ * @author Sayf Elhawary
+ */
+public class PlacementBot implements MovePolicy {
+
+	private static final int PARALLEL_WORK = 1 << 14; // The least number of row
+	                                                  // copies in a search that
+	                                                  // is split across threads.
+
+	private double heightWeight_, linesWeight_, holesWeight_,
+	    bumpinessWeight_; // The weights of the features of a placement.
+
+	private static final int MOVE_COL_BITS = 14; // The bits of a stored move
+	                                             // that hold its column; the 2
+	                                             // above them hold the
+	                                             // orientation.
+
+	private static final int MOVE_COL_MASK = (1 << MOVE_COL_BITS) - 1;
+	// The column bits of a stored move. Columns from MOVE_COL_MASK on are not
+	// stored, so that no move equals TranspositionTable.NO_MOVE; their
+	// positions are stored with NO_MOVE instead.
+
+	private static final long QUEUE_SEED = 0x0DD5EA5EL; // The seed of the keys
+	                                                   // of the pieces to place.
+
+	private long queueSeed_; // QUEUE_SEED mixed with the weights, so bots with
+	                         // different weights key their positions apart.
+
+	private int lookahead_; // The number of upcoming pieces searched.
+	                        // lookahead_ >= 0.
+
+	private TranspositionTable table_; // The cache of position scores, or null.
+
+	private Board[][] scratch_; // Scratch boards for each orientation's search,
+	                            // one for each ply.
+
+	private int plies_; // The number of pieces placed in the current search.
+
+	private Polyomino[] queue_; // The polyomino placed at each ply.
+
+	private long[] queueKeys_; // The key of the pieces from each ply on.
+
+	private double[] bestScores_; // The best score of each distinct
+	                              // orientation.
+
+	private int[] bestCols_; // The column of each distinct orientation's best
+	                         // placement, or -1 if the orientation has none.
+
+	private int plannedPiece_; // The number of pieces played when the plan was
+	                           // made, or -1 if there is no plan.
+
+	private Polyomino plannedPolyomino_; // The polyomino the plan was made for.
+
+	private int targetOrientation_, targetCol_; // The chosen placement, in a
+	                                            // canonical orientation. The
+	                                            // column is -1 if no placement
+	                                            // is safe.
+
+	private Action lastAction_; // The last action returned for the plan.
+
+	private int lastRow_, lastCol_, lastOrientation_; // The piece's position
+	                                                  // when the last action was
+	                                                  // returned.
+
+	/**
+	 * Creates a bot with weights that work well on standard boards.
+	 */
+	public PlacementBot () {
+		this(-0.51,0.76,-0.36,-0.18);
+	}
+
+	/**
+	 * Creates a bot with the desired weights. Larger scores are better, so
+	 * features to be avoided get negative weights.
+	 * 
+	 * @param heightWeight
+	 *          The weight of the sum of the column heights.
+	 * @param linesWeight
+	 *          The weight of the number of rows cleared.
+	 * @param holesWeight
+	 *          The weight of the number of holes.
+	 * @param bumpinessWeight
+	 *          The weight of the sum of the height differences between
+	 *          neighbouring columns.
+	 */
+	public PlacementBot ( double heightWeight, double linesWeight,
+	                      double holesWeight, double bumpinessWeight ) {
+		heightWeight_ = heightWeight;
+		linesWeight_ = linesWeight;
+		holesWeight_ = holesWeight;
+		bumpinessWeight_ = bumpinessWeight;
+		queueSeed_ = QUEUE_SEED;
+		for ( double weight : new double[] { heightWeight, linesWeight,
+		    holesWeight, bumpinessWeight } ) {
+			queueSeed_ = SeededPieceGenerator
+			    .random(queueSeed_ ^ Double.doubleToLongBits(weight),1);
+		}
+		lookahead_ = 0;
+		table_ = null;
+		scratch_ = new Board[0][0];
+		plies_ = 1;
+		queue_ = new Polyomino[0];
+		queueKeys_ = new long[0];
+		bestScores_ = new double[0];
+		bestCols_ = new int[0];
+		plannedPiece_ = -1;
+		plannedPolyomino_ = null;
+		lastAction_ = null;
+	}
+
+	@Override
+	public Action nextAction ( Game game ) {
+		Piece piece = game.getCurrentPiece();
+		if ( piece == null || !game.getGameProgress() ) {
+			return null;
+		}
+		if ( game.getPiecesPlayed() != plannedPiece_
+		    || piece.getPolyomino() != plannedPolyomino_ ) {
+			plan(game,piece);
+			plannedPiece_ = game.getPiecesPlayed();
+			plannedPolyomino_ = piece.getPolyomino();
+			lastAction_ = null;
+		}
+
+		int row = game.getCurrentPieceRow(), col = game.getCurrentPieceCol();
+		Board board = game.getBoard();
+		Action action;
+		if ( row >= board.getBoardHeight() ) {
+			// the piece cannot turn or slide until it is on the board
+			action = Action.DOWN;
+		} else if ( lastAction_ != null && lastAction_ != Action.DOWN
+		    && row == lastRow_ && col == lastCol_
+		    && piece.getOrientation() == lastOrientation_ ) {
+			// the last move was blocked: land the piece where it is
+			action = board.getDropRow(piece,row,col) < row ? Action.DROP
+			    : Action.DOWN;
+		} else if ( piece.getPolyomino()
+		    .getCanonicalRotation(piece.getOrientation()) != targetOrientation_ ) {
+			action = Action.ROTATE;
+		} else if ( targetCol_ >= 0 && col < targetCol_ ) {
+			action = Action.RIGHT;
+		} else if ( targetCol_ >= 0 && col > targetCol_ ) {
+			action = Action.LEFT;
+		} else {
+			action = board.getDropRow(piece,row,col) < row ? Action.DROP
+			    : Action.DOWN;
+		}
+		lastAction_ = action;
+		lastRow_ = row;
+		lastCol_ = col;
+		lastOrientation_ = piece.getOrientation();
+		return action;
+	}
+
+	/**
+	 * Sets how many upcoming pieces the bot looks ahead to. With a lookahead, a
+	 * placement is scored by the best placements of the upcoming pieces that
+	 * can follow it.
+	 * 
+	 * @param pieces
+	 *          The number of upcoming pieces, at most the game's lookahead.
+	 *          pieces >= 0.
+	 */
+	public void setLookahead ( int pieces ) {
+		if ( pieces < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		lookahead_ = pieces;
+	}
+
+	/**
+	 * Sets the table that caches the scores of positions reached during a
+	 * lookahead. Different placement orders often lead to the same board, which
+	 * is then only searched once. A table may be shared by several bots; their
+	 * weights are part of each position's key, so bots with different weights
+	 * do not read each other's scores.
+	 * 
+	 * @param table
+	 *          The table, or null to search without one.
+	 */
+	public void setTranspositionTable ( TranspositionTable table ) {
+		table_ = table;
+	}
+
+	/**
+	 * Chooses the best placement of the current piece of a game.
+	 * 
+	 * @param game
+	 *          The game. It is not changed.
+	 * @param piece
+	 *          The piece to place.
+	 */
+	private void plan ( Game game, Piece piece ) {
+		Board board = game.getBoard();
+		Polyomino polyomino = piece.getPolyomino();
+		// orientations with the same blocks have the same placements, so only
+		// the distinct ones are searched
+		int orientations = polyomino.getNumDistinctRotations();
+		plies_ = Math.min(lookahead_,game.getLookahead()) + 1;
+		if ( scratch_.length < orientations || scratch_[0].length < plies_
+		    || scratch_[0][0].getBoardWidth() != board.getBoardWidth()
+		    || scratch_[0][0].getBoardHeight() != board.getBoardHeight() ) {
+			scratch_ = new Board[Math.max(orientations,scratch_.length)][plies_];
+			for ( int i = 0 ; i < scratch_.length ; i++ ) {
+				for ( int j = 0 ; j < plies_ ; j++ ) {
+					scratch_[i][j] =
+					    new Board(board.getBoardWidth(),board.getBoardHeight());
+				}
+			}
+			bestScores_ = new double[scratch_.length];
+			bestCols_ = new int[scratch_.length];
+			queue_ = new Polyomino[plies_];
+			queueKeys_ = new long[plies_];
+		}
+
+		// the key of the pieces from each ply on, so a position's key is its
+		// board's hash mixed with the bot's weights and the pieces still to be
+		// placed
+		queue_[0] = polyomino;
+		long key = queueSeed_;
+		for ( int i = plies_ - 1 ; i >= 0 ; i-- ) {
+			int index = i == 0 ? game.getCurrentPolyomino()
+			    : game.getNextPolyomino(i - 1);
+			if ( i > 0 ) {
+				queue_[i] = game.getPolyomino(index);
+			}
+			key = SeededPieceGenerator.random(key,index);
+			queueKeys_[i] = key;
+		}
+		if ( table_ != null ) {
+			table_.newSearch();
+		}
+
+		double work = (double) orientations * board.getBoardWidth()
+		    * (board.getStackHeight() + 1)
+		    * Math.pow(4.0 * board.getBoardWidth(),plies_ - 1);
+		if ( work >= PARALLEL_WORK ) {
+			IntStream.range(0,orientations).parallel()
+			    .forEach(i -> search(board,polyomino
+			        .getPiece(polyomino.getDistinctRotation(i)),i));
+		} else {
+			for ( int i = 0 ; i < orientations ; i++ ) {
+				search(board,polyomino.getPiece(polyomino.getDistinctRotation(i)),
+				       i);
+			}
+		}
+
+		// without a safe placement, drop the piece as it is
+		targetOrientation_ =
+		    polyomino.getCanonicalRotation(piece.getOrientation());
+		targetCol_ = -1;
+		double best = Double.NEGATIVE_INFINITY;
+		for ( int i = 0 ; i < orientations ; i++ ) {
+			if ( bestCols_[i] >= 0 && bestScores_[i] > best ) {
+				best = bestScores_[i];
+				targetOrientation_ = polyomino.getDistinctRotation(i);
+				targetCol_ = bestCols_[i];
+			}
+		}
+	}
+
+	/**
+	 * Finds the best column for one orientation of the current piece, leaving
+	 * the result in bestScores_ and bestCols_. It only uses the orientation's
+	 * own scratch boards, so orientations can be searched at the same time.
+	 * 
+	 * @param board
+	 *          The board. It is not changed.
+	 * @param piece
+	 *          The orientation to place.
+	 * @param index
+	 *          The index of the orientation among the distinct ones.
+	 */
+	private void search ( Board board, Piece piece, int index ) {
+		double best = Double.NEGATIVE_INFINITY;
+		int bestCol = -1;
+		for ( int col = 0 ; col + piece.getPieceWidth() <= board
+		    .getBoardWidth() ; col++ ) {
+			double score = score(board,piece,col,0,scratch_[index]);
+			if ( score > best ) {
+				best = score;
+				bestCol = col;
+			}
+		}
+		bestScores_[index] = best;
+		bestCols_[index] = bestCol;
+	}
+
+	/**
+	 * Scores one placement: the piece is dropped from the top of the board at
+	 * the desired column, full rows are cleared, and the result is evaluated,
+	 * or searched further if there are upcoming pieces to look ahead to.
+	 * 
+	 * @param board
+	 *          The board. It is not changed.
+	 * @param piece
+	 *          The piece to place.
+	 * @param col
+	 *          The column to place it at.
+	 * @param ply
+	 *          The number of pieces placed before this one in the search.
+	 * @param scratch
+	 *          A scratch board for each ply.
+	 * @return The score, or negative infinity if the piece would stick out of
+	 *         the top of the board.
+	 */
+	private double score ( Board board, Piece piece, int col, int ply,
+	                       Board[] scratch ) {
+		int height = board.getBoardHeight();
+		int row = board.getDropRow(piece,height - 1,col);
+		if ( row + piece.getPieceHeight() > height
+		    || !board.canPlace(piece,row,col) ) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		Board next = scratch[ply];
+		next.copyFrom(board);
+		next.addPiece(piece,row,col);
+		int lines = next.clearRows();
+		if ( ply + 1 == plies_ ) {
+			return evaluate(next,lines);
+		}
+		return linesWeight_ * lines + value(next,ply + 1,scratch);
+	}
+
+	/**
+	 * Gets the score of the best placement of an upcoming piece, looking it up
+	 * in the transposition table if possible.
+	 * 
+	 * @param board
+	 *          The board. It is not changed.
+	 * @param ply
+	 *          The number of pieces placed before this one in the search. ply >
+	 *          0.
+	 * @param scratch
+	 *          A scratch board for each ply.
+	 * @return The score, or negative infinity if there is no safe placement.
+	 */
+	private double value ( Board board, int ply, Board[] scratch ) {
+		TranspositionTable table = table_;
+		long key = board.getHash() ^ queueKeys_[ply];
+		if ( table != null ) {
+			long data = table.probe(key);
+			if ( data != TranspositionTable.MISS ) {
+				return TranspositionTable.getScore(data);
+			}
+		}
+		Polyomino polyomino = queue_[ply];
+		double best = Double.NEGATIVE_INFINITY;
+		int bestMove = TranspositionTable.NO_MOVE;
+		for ( int i = 0 ; i < polyomino.getNumDistinctRotations() ; i++ ) {
+			Piece piece = polyomino.getPiece(polyomino.getDistinctRotation(i));
+			for ( int col = 0 ; col + piece.getPieceWidth() <= board
+			    .getBoardWidth() ; col++ ) {
+				double score = score(board,piece,col,ply,scratch);
+				if ( score > best ) {
+					best = score;
+					bestMove = col >= MOVE_COL_MASK ? TranspositionTable.NO_MOVE
+					    : piece.getOrientation() << MOVE_COL_BITS | col;
+				}
+			}
+		}
+		// the table keeps scores as floats, so searched scores are rounded the
+		// same way and a search plays the same with or without a table
+		best = (float) best;
+		if ( table != null ) {
+			table.store(key,best,bestMove,plies_ - ply - 1);
+		}
+		return best;
+	}
+
+	/**
+	 * Scores a board after a piece has been placed and full rows cleared.
+	 * 
+	 * @param board
+	 *          The board.
+	 * @param lines
+	 *          The number of rows the placement cleared.
+	 * @return The score. Larger is better.
+	 */
+	private double evaluate ( Board board, int lines ) {
+		int aggregate = 0, bumpiness = 0;
+		int previous = board.getColumnHeight(0);
+		for ( int i = 0 ; i < board.getBoardWidth() ; i++ ) {
+			int columnHeight = board.getColumnHeight(i);
+			aggregate += columnHeight;
+			bumpiness += Math.abs(columnHeight - previous);
+			previous = columnHeight;
+		}
+		// every block is at or below the top of its column, so the remaining
+		// cells under the surface are holes
+		int holes = aggregate - board.getBlockCount();
+		return heightWeight_ * aggregate + linesWeight_ * lines
+		    + holesWeight_ * holes + bumpinessWeight_ * bumpiness;
+	}
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Tester for PlacementBot.
+ * 
+ * @author Sayf Elhawary
+ */
+public class PlacementBotTester {
+
+	public static void main(String[] args) {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: nextAction - fills the well
+			// starting state: game whose board is full except for one column, 4
+			// rows deep
+			// input: straight pieces of 4 blocks
+			// expected result: the piece fills the well and the rows are cleared
+			System.out.println("nextAction - fills the well");
+			System.out.println();
+			Game game = new Game(() -> 4);
+			Board board = game.getBoard();
+			Piece block = new Polyomino(new String[] { "0 0" }, 0x808080).getPiece(0);
+			int well = 11;
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < board.getBoardWidth(); j++) {
+					if (j != well) {
+						board.addPiece(block, i, j);
+					}
+				}
+			}
+			PlacementBot bot = new PlacementBot();
+			game.start();
+			int pieces = game.getPiecesPlayed();
+			// play the first piece to the end
+			for (int i = 0; i < 100 && game.getPiecesPlayed() == pieces; i++) {
+				Action action = bot.nextAction(game);
+				game.movePiece(action == null ? Action.DOWN : action);
+			}
+			boolean test = game.getPiecesPlayed() == pieces + 1 && game.getClearedRows() == 4 && board.isEmpty(0, 0);
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: nextAction - plays a long game
+			// starting state: new game
+			// input: 500 pieces, with gravity after every 3 moves
+			// expected result: rows are cleared and the game is not over
+			System.out.println("nextAction - plays a long game");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42));
+			PlacementBot bot = new PlacementBot();
+			game.start();
+			int moves = 0;
+			while (!game.getGameOver() && game.getPiecesPlayed() < 500) {
+				Action action = bot.nextAction(game);
+				if (action != null) {
+					game.movePiece(action);
+				}
+				if (++moves % 3 == 0) {
+					game.movePiece(Action.DOWN);
+				}
+			}
+			boolean test = !game.getGameOver() && game.getClearedRows() > 50;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED! " + game.getPiecesPlayed() + " pieces, " + game.getClearedRows() + " rows");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: setTranspositionTable - same moves as without a table
+			// starting state: new game
+			// input: lookahead - 2, 25 pieces
+			// expected result: the bots with and without a table agree on every
+			// move, and the table finds pieces of the same kind placed in either
+			// order
+			System.out.println("setTranspositionTable - same moves as without a table");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 7));
+			PlacementBot bot1 = new PlacementBot();
+			PlacementBot bot2 = new PlacementBot();
+			bot1.setLookahead(2);
+			bot2.setLookahead(2);
+			TranspositionTable table = new TranspositionTable(1 << 16);
+			bot2.setTranspositionTable(table);
+			game.start();
+			boolean test = true;
+			int moves = 0;
+			while (!game.getGameOver() && game.getPiecesPlayed() < 25) {
+				Action action = bot1.nextAction(game);
+				if (action != bot2.nextAction(game)) {
+					test = false;
+				}
+				if (action != null) {
+					game.movePiece(action);
+				}
+				if (++moves % 3 == 0) {
+					game.movePiece(Action.DOWN);
+				}
+			}
+			test = test && table.getHits() > 0;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: setTranspositionTable - shared by bots with other weights
+			// starting state: new game, a table filled by a bot with the default
+			// weights
+			// input: lookahead - 1, a bot with other weights and one with the
+			// default weights, each searching the same position
+			// expected result: the bot with other weights finds as many positions
+			// as on a table of its own, and the bot with the default weights
+			// finds more
+			System.out.println("setTranspositionTable - shared by bots with other weights");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 7));
+			game.start();
+			TranspositionTable shared = new TranspositionTable(1 << 16);
+			PlacementBot first = new PlacementBot();
+			first.setLookahead(1);
+			first.setTranspositionTable(shared);
+			first.nextAction(game);
+
+			PlacementBot alone = new PlacementBot(-1, 1, -1, -1);
+			TranspositionTable table = new TranspositionTable(1 << 16);
+			alone.setLookahead(1);
+			alone.setTranspositionTable(table);
+			alone.nextAction(game);
+			long hits = table.getHits();
+			long before = shared.getHits();
+			PlacementBot other = new PlacementBot(-1, 1, -1, -1);
+			other.setLookahead(1);
+			other.setTranspositionTable(shared);
+			other.nextAction(game);
+			boolean test = shared.getHits() - before == hits;
+
+			before = shared.getHits();
+			PlacementBot same = new PlacementBot();
+			same.setLookahead(1);
+			same.setTranspositionTable(shared);
+			same.nextAction(game);
+			test = test && shared.getHits() - before > hits;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+}
@@ -1,4 +1,4 @@
-import javafx.scene.paint.Color;
+import java.util.Arrays;
 
 /**
  * A polyomino is made up of a bunch of squares (or blocks). It captures the
@@ -9,9 +9,17 @@ import javafx.scene.paint.Color;
 
 public class Polyomino {
 
-	private String[] orientations_; // The orientations for the polyomino.
+	private Block[][] blocks_; // The blocks of each orientation, parsed once.
 
-	private Color color_; // The polyomino's color.
+	private Piece[] pieces_; // The shared piece for each orientation.
+
+	private int[] canonical_; // The first orientation with the same blocks as
+	                          // each orientation.
+
+	private int[] distinct_; // The orientations that are the first with their
+	                         // blocks, in order.
+
+	private int color_; // The polyomino's color, as 0xRRGGBB.
 
 	/**
 	 * Creates a polyomino using the inserted String array defining the
@@ -20,18 +28,60 @@ public class Polyomino {
 	 * @param orientations
 	 *          The desired orientations for the polyomino.
 	 * @param color
-	 *          The polyomino's desired color.
+	 *          The polyomino's desired color, as 0xRRGGBB.
+	 */
+	public Polyomino ( String[] orientations, int color ) {
+		this(parseOrientations(orientations),color);
+	}
+
+	/**
+	 * Creates a polyomino from the blocks of its orientations and a color.
+	 * 
+	 * @param orientations
+	 *          The blocks of each orientation. The arrays are kept, not copied.
+	 * @param color
+	 *          The polyomino's desired color, as 0xRRGGBB.
 	 */
-	public Polyomino ( String[] orientations, Color color ) {
+	Polyomino ( Block[][] orientations, int color ) {
 		if ( orientations.length > 4 ) {
 			throw new IllegalArgumentException("The number of orientations for a polyomino cannot be more than 4.");
 		}
-		orientations_ = orientations;
 		color_ = color;
+		blocks_ = orientations;
+		pieces_ = new Piece[orientations.length];
+		for ( int i = 0 ; i < orientations.length ; i++ ) {
+			pieces_[i] = new Piece(this,i);
+		}
+
+		// symmetric shapes repeat orientations, which searches only need to
+		// try once
+		long[][] cells = new long[orientations.length][];
+		canonical_ = new int[orientations.length];
+		int distinct = 0;
+		for ( int i = 0 ; i < orientations.length ; i++ ) {
+			cells[i] = sortedCells(orientations[i]);
+			canonical_[i] = i;
+			for ( int j = 0 ; j < i ; j++ ) {
+				if ( Arrays.equals(cells[i],cells[j]) ) {
+					canonical_[i] = j;
+					break;
+				}
+			}
+			if ( canonical_[i] == i ) {
+				distinct++;
+			}
+		}
+		distinct_ = new int[distinct];
+		for ( int i = 0, j = 0 ; i < orientations.length ; i++ ) {
+			if ( canonical_[i] == i ) {
+				distinct_[j++] = i;
+			}
+		}
 	}
 
 	/**
 	 * Gets an array of blocks according to the desired index of the orientation.
+	 * The array is shared by every caller and must not be modified.
 	 * 
 	 * @param index
 	 *          Index for the desired orientation for the polyomino. index >= 0.
@@ -39,17 +89,25 @@ public class Polyomino {
 	 *         according to the inserted index.
 	 */
 	public Block[] getBlocks ( int index ) {
-		if ( index >= orientations_.length || index < 0 ) {
+		if ( index >= blocks_.length || index < 0 ) {
 			throw new IllegalArgumentException("The index is out of bounds. Please try again.");
 		}
-		String str = orientations_[index];
-		String[] coords = str.split(" +");
-		Block[] blocks = new Block[coords.length / 2];
-		for ( int i = 0 ; i < coords.length ; i += 2 ) {
-			blocks[i / 2] = new Block(Integer.parseInt(coords[i]),
-			                          Integer.parseInt(coords[i + 1]));
+		return blocks_[index];
+	}
+
+	/**
+	 * Gets the shared piece for the desired orientation. Every call with the same
+	 * index returns the same instance.
+	 * 
+	 * @param index
+	 *          Index for the desired orientation for the polyomino. index >= 0.
+	 * @return The piece in that orientation of the polyomino.
+	 */
+	public Piece getPiece ( int index ) {
+		if ( index >= pieces_.length || index < 0 ) {
+			throw new IllegalArgumentException("The index is out of bounds. Please try again.");
 		}
-		return blocks;
+		return pieces_[index];
 	}
 
 	/**
@@ -58,16 +116,108 @@ public class Polyomino {
 	 * @return The number of orientations for this polyomino.
 	 */
 	public int getNumRotations () {
-		return orientations_.length;
+		return blocks_.length;
+	}
+
+	/**
+	 * Gets the number of orientations with different blocks. A square has 1, a
+	 * straight piece 2, however many times their orientations are repeated.
+	 * 
+	 * @return The number of distinct orientations. 1 <= the number <=
+	 *         getNumRotations().
+	 */
+	public int getNumDistinctRotations () {
+		return distinct_.length;
+	}
+
+	/**
+	 * Gets one of the distinct orientations, each the first orientation with its
+	 * blocks.
+	 * 
+	 * @param index
+	 *          The index of the distinct orientation. 0 <= index <
+	 *          getNumDistinctRotations().
+	 * @return The orientation's index, as used by getBlocks and getPiece.
+	 */
+	public int getDistinctRotation ( int index ) {
+		if ( index >= distinct_.length || index < 0 ) {
+			throw new IllegalArgumentException("The index is out of bounds. Please try again.");
+		}
+		return distinct_[index];
+	}
+
+	/**
+	 * Gets the canonical orientation of an orientation: the first one with the
+	 * same blocks. Pieces in orientations with the same canonical orientation
+	 * cover the same cells wherever they are placed.
+	 * 
+	 * @param index
+	 *          Index for the orientation. 0 <= index < getNumRotations().
+	 * @return The index of the canonical orientation, at most index.
+	 */
+	public int getCanonicalRotation ( int index ) {
+		if ( index >= canonical_.length || index < 0 ) {
+			throw new IllegalArgumentException("The index is out of bounds. Please try again.");
+		}
+		return canonical_[index];
 	}
 
 	/**
 	 * Gets the polyomino's color.
 	 * 
-	 * @return The polyomino's color.
+	 * @return The polyomino's color, as 0xRRGGBB.
 	 */
-	public Color getPolyominoColor () {
+	public int getPolyominoColor () {
 		return color_;
 	}
 
+	/**
+	 * Packs the blocks of an orientation for comparing, in any order.
+	 * 
+	 * @param blocks
+	 *          The blocks.
+	 * @return The row and column of each block, as row << 32 | column, sorted.
+	 */
+	private static long[] sortedCells ( Block[] blocks ) {
+		long[] cells = new long[blocks.length];
+		for ( int i = 0 ; i < blocks.length ; i++ ) {
+			cells[i] = (long) blocks[i].getRow() << 32 | blocks[i].getCol();
+		}
+		Arrays.sort(cells);
+		return cells;
+	}
+
+	/**
+	 * Parses every orientation into its blocks.
+	 * 
+	 * @param orientations
+	 *          The orientations, each as pairs of row and column separated by
+	 *          spaces.
+	 * @return The blocks of each orientation.
+	 */
+	private static Block[][] parseOrientations ( String[] orientations ) {
+		Block[][] blocks = new Block[orientations.length][];
+		for ( int i = 0 ; i < orientations.length ; i++ ) {
+			blocks[i] = parseBlocks(orientations[i]);
+		}
+		return blocks;
+	}
+
+	/**
+	 * Parses an orientation into its blocks.
+	 * 
+	 * @param orientation
+	 *          The orientation, as pairs of row and column separated by spaces.
+	 * @return The blocks of the orientation.
+	 */
+	private static Block[] parseBlocks ( String orientation ) {
+		String[] coords = orientation.trim().split(" +");
+		Block[] blocks = new Block[coords.length / 2];
+		for ( int i = 0 ; i < coords.length ; i += 2 ) {
+			blocks[i / 2] = new Block(Integer.parseInt(coords[i]),
+			                          Integer.parseInt(coords[i + 1]));
+		}
+		return blocks;
+	}
+
 }
@@ -0,0 +1,456 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enumerates every polyomino of a given size and turns them into Polyomino
+ * sets, with the orientations of each worked out from its shape. Shapes are
+ * grown one block at a time from the shapes a size smaller, in parallel, and
+ * deduplicated by a canonical form: the blocks moved to row and column 0,
+ * packed one byte each and sorted, and the smallest such packing over the
+ * shape's symmetries.
+ * 
+ * @author Sayf Elhawary
+ */
+public class PolyominoGenerator {
+
+	/**
+	 * Which shapes count as the same polyomino.
+	 */
+	public enum Equivalence {
+
+		FIXED, // Every orientation is its own polyomino, which cannot rotate.
+		ONE_SIDED, // Rotations are the same polyomino, mirror images are not.
+		FREE; // Rotations and mirror images are the same polyomino.
+
+	}
+
+	public static final int MAX_SIZE = 16; // The largest size that can be
+	                                       // generated; a block's row and
+	                                       // column fit 4 bits each.
+
+	private static final int[] ROW_STEPS = { 1, -1, 0, 0 }, // The steps to the
+	    COL_STEPS = { 0, 0, 1, -1 };                         // neighbors of a
+	                                                         // block.
+
+	/**
+	 * Generates every polyomino of a size.
+	 * 
+	 * @param size
+	 *          The number of blocks. 1 <= size <= MAX_SIZE.
+	 * @param equivalence
+	 *          Which shapes count as the same polyomino. A free polyomino
+	 *          rotates through its distinct rotations only, since pieces
+	 *          cannot be flipped in play.
+	 * @return The polyominoes, in the same order on every call, with colors
+	 *         spread around the color wheel.
+	 */
+	public static Polyomino[] generate ( int size, Equivalence equivalence ) {
+		List<Block[][]> shapes = orientations(size,equivalence);
+		Polyomino[] polyominoes = new Polyomino[shapes.size()];
+		for ( int i = 0 ; i < polyominoes.length ; i++ ) {
+			polyominoes[i] =
+			    new Polyomino(shapes.get(i),color(i,polyominoes.length));
+		}
+		return polyominoes;
+	}
+
+	/**
+	 * Generates every polyomino of every size up to a size, smallest first.
+	 * 
+	 * @param maxSize
+	 *          The largest number of blocks. 1 <= maxSize <= MAX_SIZE.
+	 * @param equivalence
+	 *          Which shapes count as the same polyomino.
+	 * @return The polyominoes, in the same order on every call, with colors
+	 *         spread around the color wheel.
+	 */
+	public static Polyomino[] generateUpTo ( int maxSize,
+	                                         Equivalence equivalence ) {
+		checkSize(maxSize);
+		List<Block[][]> shapes = new ArrayList<>();
+		for ( int size = 1 ; size <= maxSize ; size++ ) {
+			shapes.addAll(orientations(size,equivalence));
+		}
+		Polyomino[] polyominoes = new Polyomino[shapes.size()];
+		for ( int i = 0 ; i < polyominoes.length ; i++ ) {
+			polyominoes[i] =
+			    new Polyomino(shapes.get(i),color(i,polyominoes.length));
+		}
+		return polyominoes;
+	}
+
+	/**
+	 * Counts the polyominoes of a size without building them.
+	 * 
+	 * @param size
+	 *          The number of blocks. 1 <= size <= MAX_SIZE.
+	 * @param equivalence
+	 *          Which shapes count as the same polyomino.
+	 * @return The number of polyominoes.
+	 */
+	public static long count ( int size, Equivalence equivalence ) {
+		List<Shape> free = freeShapes(size);
+		if ( equivalence == Equivalence.FREE ) {
+			return free.size();
+		}
+		return free.parallelStream().mapToLong(shape -> {
+			if ( equivalence == Equivalence.FIXED ) {
+				return images(shape,8).size();
+			}
+			return isChiral(shape) ? 2 : 1;
+		}).sum();
+	}
+
+	/**
+	 * Works out the orientations of every polyomino of a size.
+	 * 
+	 * @param size
+	 *          The number of blocks.
+	 * @param equivalence
+	 *          Which shapes count as the same polyomino.
+	 * @return The blocks of each orientation of each polyomino.
+	 */
+	private static List<Block[][]> orientations ( int size,
+	                                              Equivalence equivalence ) {
+		List<Block[][]> orientations = new ArrayList<>();
+		for ( Shape shape : freeShapes(size) ) {
+			if ( equivalence == Equivalence.FIXED ) {
+				for ( Shape image : images(shape,8) ) {
+					orientations.add(new Block[][] { image.toBlocks() });
+				}
+			} else {
+				orientations.add(toBlocks(images(shape,4)));
+				if ( equivalence == Equivalence.ONE_SIDED && isChiral(shape) ) {
+					orientations.add(toBlocks(images(transform(shape,4),4)));
+				}
+			}
+		}
+		return orientations;
+	}
+
+	/**
+	 * Enumerates the free polyominoes of a size by adding a block next to every
+	 * block of every free polyomino a size smaller. Every polyomino has a block
+	 * that can be taken away without disconnecting it, so this reaches them
+	 * all.
+	 * 
+	 * @param size
+	 *          The number of blocks. 1 <= size <= MAX_SIZE.
+	 * @return The canonical form of each free polyomino, sorted.
+	 */
+	private static List<Shape> freeShapes ( int size ) {
+		checkSize(size);
+		List<Shape> shapes = List.of(new Shape(new int[] { 0 }));
+		for ( int n = 2 ; n <= size ; n++ ) {
+			Set<Shape> grown = ConcurrentHashMap.newKeySet();
+			shapes.parallelStream().forEach(shape -> grow(shape,grown));
+			Shape[] sorted = grown.toArray(new Shape[0]);
+			Arrays.sort(sorted);
+			shapes = Arrays.asList(sorted);
+		}
+		return shapes;
+	}
+
+	/**
+	 * Adds the canonical form of every shape one block larger than a shape to a
+	 * set.
+	 * 
+	 * @param shape
+	 *          The shape.
+	 * @param grown
+	 *          The set.
+	 */
+	private static void grow ( Shape shape, Set<Shape> grown ) {
+		int[] cells = shape.cells();
+		int[] rows = new int[cells.length + 1];
+		int[] cols = new int[cells.length + 1];
+		for ( int i = 0 ; i < cells.length ; i++ ) {
+			rows[i] = cells[i] >>> 4;
+			cols[i] = cells[i] & 0xF;
+		}
+		boolean[] tried = new boolean[18 * 18];
+		for ( int cell : cells ) {
+			for ( int direction = 0 ; direction < 4 ; direction++ ) {
+				int row = (cell >>> 4) + ROW_STEPS[direction];
+				int col = (cell & 0xF) + COL_STEPS[direction];
+				// a cell next to several blocks is only added once
+				int index = (row + 1) * 18 + col + 1;
+				if ( tried[index] || row >= 0 && col >= 0
+				     && Arrays.binarySearch(cells,row << 4 | col) >= 0 ) {
+					continue;
+				}
+				tried[index] = true;
+				rows[cells.length] = row;
+				cols[cells.length] = col;
+				grown.add(canonical(rows,cols,8));
+			}
+		}
+	}
+
+	/**
+	 * Gets the distinct images of a shape under its first rotations and
+	 * reflections.
+	 * 
+	 * @param shape
+	 *          The shape.
+	 * @param symmetries
+	 *          4 for the rotations, 8 for the rotations and their mirror
+	 *          images.
+	 * @return The distinct images, in the order of the symmetries.
+	 */
+	private static List<Shape> images ( Shape shape, int symmetries ) {
+		List<Shape> images = new ArrayList<>(symmetries);
+		for ( int symmetry = 0 ; symmetry < symmetries ; symmetry++ ) {
+			Shape image = transform(shape,symmetry);
+			if ( !images.contains(image) ) {
+				images.add(image);
+			}
+		}
+		return images;
+	}
+
+	/**
+	 * Gets whether a shape's mirror image is a different one-sided polyomino.
+	 * 
+	 * @param shape
+	 *          The shape.
+	 * @return True if no rotation of the shape is its mirror image, false
+	 *         otherwise.
+	 */
+	private static boolean isChiral ( Shape shape ) {
+		return !images(shape,4).contains(transform(shape,4));
+	}
+
+	/**
+	 * Rotates and reflects a shape.
+	 * 
+	 * @param shape
+	 *          The shape.
+	 * @param symmetry
+	 *          The number of clockwise quarter turns, plus 4 to mirror the shape
+	 *          first. 0 <= symmetry < 8.
+	 * @return The shape moved to row and column 0.
+	 */
+	private static Shape transform ( Shape shape, int symmetry ) {
+		int[] cells = shape.cells();
+		int[] rows = new int[cells.length];
+		int[] cols = new int[cells.length];
+		for ( int i = 0 ; i < cells.length ; i++ ) {
+			rows[i] = cells[i] >>> 4;
+			cols[i] = cells[i] & 0xF;
+		}
+		return image(rows,cols,symmetry);
+	}
+
+	/**
+	 * Gets the canonical form of a shape, the smallest of its images.
+	 * 
+	 * @param rows
+	 *          The rows of the shape's blocks.
+	 * @param cols
+	 *          The columns of the shape's blocks.
+	 * @param symmetries
+	 *          The number of images to choose from: 8 for free polyominoes.
+	 * @return The canonical form.
+	 */
+	private static Shape canonical ( int[] rows, int[] cols, int symmetries ) {
+		Shape best = image(rows,cols,0);
+		for ( int symmetry = 1 ; symmetry < symmetries ; symmetry++ ) {
+			Shape image = image(rows,cols,symmetry);
+			if ( image.compareTo(best) < 0 ) {
+				best = image;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Rotates and reflects a shape, moves it to row and column 0 and packs it.
+	 * 
+	 * @param rows
+	 *          The rows of the shape's blocks.
+	 * @param cols
+	 *          The columns of the shape's blocks.
+	 * @param symmetry
+	 *          The number of clockwise quarter turns, plus 4 to mirror the shape
+	 *          first. 0 <= symmetry < 8.
+	 * @return The packed image.
+	 */
+	private static Shape image ( int[] rows, int[] cols, int symmetry ) {
+		int[] r = new int[rows.length];
+		int[] c = new int[rows.length];
+		int minRow = Integer.MAX_VALUE, minCol = Integer.MAX_VALUE;
+		for ( int i = 0 ; i < rows.length ; i++ ) {
+			int row = rows[i];
+			int col = symmetry >= 4 ? -cols[i] : cols[i];
+			for ( int turn = 0 ; turn < (symmetry & 3) ; turn++ ) {
+				// a clockwise quarter turn, with row 0 at the bottom
+				int rotated = -col;
+				col = row;
+				row = rotated;
+			}
+			r[i] = row;
+			c[i] = col;
+			minRow = Math.min(minRow,row);
+			minCol = Math.min(minCol,col);
+		}
+		int[] cells = new int[rows.length];
+		for ( int i = 0 ; i < cells.length ; i++ ) {
+			cells[i] = (r[i] - minRow) << 4 | (c[i] - minCol);
+		}
+		return new Shape(cells);
+	}
+
+	/**
+	 * Converts the orientations of a polyomino to blocks.
+	 * 
+	 * @param images
+	 *          The orientations.
+	 * @return The blocks of each orientation.
+	 */
+	private static Block[][] toBlocks ( List<Shape> images ) {
+		Block[][] blocks = new Block[images.size()][];
+		for ( int i = 0 ; i < blocks.length ; i++ ) {
+			blocks[i] = images.get(i).toBlocks();
+		}
+		return blocks;
+	}
+
+	/**
+	 * Picks the color of a polyomino, spacing the colors of a set evenly around
+	 * the color wheel.
+	 * 
+	 * @param index
+	 *          The polyomino's index in the set.
+	 * @param count
+	 *          The number of polyominoes in the set.
+	 * @return The color, as 0xRRGGBB.
+	 */
+	private static int color ( int index, int count ) {
+		double hue = 6.0 * index / count;
+		int sector = (int) hue;
+		int high = 0xF0, low = 0x40;
+		int rising = (int) (low + (high - low) * (hue - sector));
+		int falling = high + low - rising;
+		switch ( sector ) {
+		case 0:
+			return high << 16 | rising << 8 | low;
+		case 1:
+			return falling << 16 | high << 8 | low;
+		case 2:
+			return low << 16 | high << 8 | rising;
+		case 3:
+			return low << 16 | falling << 8 | high;
+		case 4:
+			return rising << 16 | low << 8 | high;
+		default:
+			return high << 16 | low << 8 | falling;
+		}
+	}
+
+	/**
+	 * Checks that a size can be generated.
+	 * 
+	 * @param size
+	 *          The number of blocks.
+	 */
+	private static void checkSize ( int size ) {
+		if ( size < 1 || size > MAX_SIZE ) {
+			throw new IllegalArgumentException("The size of a polyomino must be between 1 and "
+			    + MAX_SIZE + ".");
+		}
+	}
+
+	/**
+	 * A shape moved to row and column 0, with each block packed into a byte as
+	 * row << 4 | column, sorted and stored eight to a long. Shapes compare by
+	 * their packed blocks.
+	 */
+	private static final class Shape implements Comparable<Shape> {
+
+		private int size_; // The number of blocks.
+
+		private long[] packed_; // The packed blocks, the first in the highest
+		                        // byte.
+
+		private int hash_; // The hash of the packed blocks.
+
+		/**
+		 * Packs a shape.
+		 * 
+		 * @param cells
+		 *          The shape's blocks, as row << 4 | column. Sorted in place.
+		 */
+		Shape ( int[] cells ) {
+			Arrays.sort(cells);
+			size_ = cells.length;
+			packed_ = new long[(cells.length + 7) / 8];
+			for ( int i = 0 ; i < cells.length ; i++ ) {
+				packed_[i / 8] |= (long) cells[i] << (56 - 8 * (i % 8));
+			}
+			long hash = size_;
+			for ( long word : packed_ ) {
+				hash = (hash ^ word) * 0x9e3779b97f4a7c15L;
+			}
+			hash_ = (int) (hash ^ hash >>> 32);
+		}
+
+		/**
+		 * Unpacks the blocks.
+		 * 
+		 * @return The blocks, as row << 4 | column, sorted.
+		 */
+		int[] cells () {
+			int[] cells = new int[size_];
+			for ( int i = 0 ; i < size_ ; i++ ) {
+				cells[i] = (int) (packed_[i / 8] >>> (56 - 8 * (i % 8))) & 0xFF;
+			}
+			return cells;
+		}
+
+		/**
+		 * Unpacks the blocks.
+		 * 
+		 * @return The blocks.
+		 */
+		Block[] toBlocks () {
+			int[] cells = cells();
+			Block[] blocks = new Block[cells.length];
+			for ( int i = 0 ; i < cells.length ; i++ ) {
+				blocks[i] = new Block(cells[i] >>> 4,cells[i] & 0xF);
+			}
+			return blocks;
+		}
+
+		@Override
+		public int compareTo ( Shape other ) {
+			if ( size_ != other.size_ ) {
+				return Integer.compare(size_,other.size_);
+			}
+			for ( int i = 0 ; i < packed_.length ; i++ ) {
+				int compare = Long.compareUnsigned(packed_[i],other.packed_[i]);
+				if ( compare != 0 ) {
+					return compare;
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public boolean equals ( Object other ) {
+			return other instanceof Shape && hash_ == ((Shape) other).hash_
+			    && size_ == ((Shape) other).size_
+			    && Arrays.equals(packed_,((Shape) other).packed_);
+		}
+
+		@Override
+		public int hashCode () {
+			return hash_;
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tester for PolyominoGenerator.
+ * 
+ * @author Sayf Elhawary
+ */
+public class PolyominoGeneratorTester {
+
+	public static void main(String[] args) {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: count - sizes 1 to 10
+			// starting state: none
+			// input: sizes 1 to 10 free, 1 to 8 one-sided and fixed
+			// expected result: the known numbers of polyominoes
+			System.out.println("count - sizes 1 to 10");
+			System.out.println();
+			long[] free = { 1, 1, 2, 5, 12, 35, 108, 369, 1285, 4655 };
+			long[] oneSided = { 1, 1, 2, 7, 18, 60, 196, 704 };
+			long[] fixed = { 1, 2, 6, 19, 63, 216, 760, 2725 };
+			boolean test = true;
+			for (int size = 1; size <= free.length; size++) {
+				test = test && PolyominoGenerator.count(size, PolyominoGenerator.Equivalence.FREE) == free[size - 1];
+			}
+			for (int size = 1; size <= fixed.length; size++) {
+				test = test && PolyominoGenerator.count(size, PolyominoGenerator.Equivalence.ONE_SIDED) == oneSided[size - 1]
+				    && PolyominoGenerator.count(size, PolyominoGenerator.Equivalence.FIXED) == fixed[size - 1];
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: generate - one-sided tetrominoes
+			// starting state: none
+			// input: size 4, one-sided
+			// expected result: the 7 tetrominoes, with 19 distinct orientations
+			// between them, each of 4 blocks starting at row and column 0
+			System.out.println("generate - one-sided tetrominoes");
+			System.out.println();
+			Polyomino[] polyominoes = PolyominoGenerator.generate(4, PolyominoGenerator.Equivalence.ONE_SIDED);
+			boolean test = polyominoes.length == 7;
+			int orientations = 0;
+			Set<String> seen = new HashSet<>();
+			for (Polyomino polyomino : polyominoes) {
+				for (int i = 0; i < polyomino.getNumRotations(); i++) {
+					Block[] blocks = polyomino.getBlocks(i);
+					int minRow = Integer.MAX_VALUE, minCol = Integer.MAX_VALUE;
+					for (Block block : blocks) {
+						minRow = Math.min(minRow, block.getRow());
+						minCol = Math.min(minCol, block.getCol());
+					}
+					test = test && blocks.length == 4 && minRow == 0 && minCol == 0
+					    && polyomino.getPiece(i).getPolyomino() == polyomino;
+					seen.add(blocksToString(blocks));
+					orientations++;
+				}
+			}
+			test = test && orientations == 19 && seen.size() == 19;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: generate - rotation counts of free pentominoes
+			// starting state: none
+			// input: size 5, free
+			// expected result: 12 pentominoes, the X with 1 rotation, the I and
+			// Z with 2, the rest with 4, and the same polyominoes in the same
+			// order on a second call
+			System.out.println("generate - rotation counts of free pentominoes");
+			System.out.println();
+			Polyomino[] polyominoes = PolyominoGenerator.generate(5, PolyominoGenerator.Equivalence.FREE);
+			Polyomino[] again = PolyominoGenerator.generate(5, PolyominoGenerator.Equivalence.FREE);
+			int[] rotations = new int[5];
+			boolean test = polyominoes.length == 12;
+			for (int i = 0; i < polyominoes.length; i++) {
+				rotations[polyominoes[i].getNumRotations()]++;
+				test = test && blocksToString(polyominoes[i].getBlocks(0)).equals(blocksToString(again[i].getBlocks(0)))
+				    && polyominoes[i].getPolyominoColor() == again[i].getPolyominoColor();
+			}
+			test = test && rotations[1] == 1 && rotations[2] == 2 && rotations[4] == 9;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: generateUpTo - free up to size 3
+			// starting state: none
+			// input: maximum size 3, free
+			// expected result: the monomino, the domino and the 2 trominoes,
+			// smallest first
+			System.out.println("generateUpTo - free up to size 3");
+			System.out.println();
+			Polyomino[] polyominoes = PolyominoGenerator.generateUpTo(3, PolyominoGenerator.Equivalence.FREE);
+			boolean test = polyominoes.length == 4 && polyominoes[0].getBlocks(0).length == 1
+			    && polyominoes[1].getBlocks(0).length == 2 && polyominoes[2].getBlocks(0).length == 3
+			    && polyominoes[3].getBlocks(0).length == 3;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+	/**
+	 * Converts blocks to a String of row and column pairs.
+	 * 
+	 * @param blocks
+	 *          The blocks.
+	 * @return The blocks as a String.
+	 */
+	private static String blocksToString(Block[] blocks) {
+		StringBuilder text = new StringBuilder();
+		for (Block block : blocks) {
+			text.append(block.getRow()).append(' ').append(block.getCol()).append("  ");
+		}
+		return text.toString().trim();
+	}
+
+}
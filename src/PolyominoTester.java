@@ -1,5 +1,3 @@
-import javafx.scene.paint.Color;
-
 /**
  * Tester for Polyomino.
  * 
@@ -22,7 +20,7 @@ public class PolyominoTester {
 			System.out.println("getBlocks - second orientation (middle)");
 			System.out.println();
 			String[] orientations = { "0 0  0 1  0 2", "0 0  1 0  2 0", "2 0  1 0  0 0", "0 2  0 1  0 0" };
-			Color color = Color.WHITE;
+			int color = 0xFFFFFF; // white
 			Polyomino polyomino = new Polyomino(orientations, color);
 			int index = 2;
 			Block[] blocks = polyomino.getBlocks(index);
@@ -42,7 +40,7 @@ public class PolyominoTester {
 			System.out.println("getBlocks - last orientation");
 			System.out.println();
 			String[] orientations = { "0 0  0 1  0 2", "0 0  1 0  2 0", "2 0  1 0  0 0", "0 2  0 1  0 0" };
-			Color color = Color.WHITE;
+			int color = 0xFFFFFF; // white
 			Polyomino polyomino = new Polyomino(orientations, color);
 			int index = 3;
 			Block[] blocks = polyomino.getBlocks(index);
@@ -62,7 +60,7 @@ public class PolyominoTester {
 			System.out.println("getBlocks - first orientation");
 			System.out.println();
 			String[] orientations = { "0 0  0 1  0 2", "0 0  1 0  2 0", "2 0  1 0  0 0", "0 2  0 1  0 0" };
-			Color color = Color.WHITE;
+			int color = 0xFFFFFF; // white
 			Polyomino polyomino = new Polyomino(orientations, color);
 			int index = 0;
 			Block[] blocks = polyomino.getBlocks(index);
@@ -74,6 +72,30 @@ public class PolyominoTester {
 			System.out.println();
 		}
 
+		{
+			// name: getDistinctRotation - repeated orientations
+			// starting state: polyomino whose third and fourth orientations repeat
+			// the first two, the fourth with its blocks in another order
+			// input: every orientation
+			// expected result: 2 distinct orientations, 0 and 1, and each
+			// orientation mapped to the first with its blocks
+			System.out.println("getDistinctRotation - repeated orientations");
+			System.out.println();
+			String[] orientations = { "0 0  0 1  0 2", "0 0  1 0  2 0", "0 0  0 1  0 2", "2 0  1 0  0 0" };
+			int color = 0xFFFFFF; // white
+			Polyomino polyomino = new Polyomino(orientations, color);
+			boolean test = polyomino.getNumRotations() == 4 && polyomino.getNumDistinctRotations() == 2
+			    && polyomino.getDistinctRotation(0) == 0 && polyomino.getDistinctRotation(1) == 1
+			    && polyomino.getCanonicalRotation(0) == 0 && polyomino.getCanonicalRotation(1) == 1
+			    && polyomino.getCanonicalRotation(2) == 0 && polyomino.getCanonicalRotation(3) == 1;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
 	}
 
 	/**
@@ -0,0 +1,38 @@
+import java.util.SplittableRandom;
+
+/**
+ * A move policy that picks a uniformly random action for every move.
+ * 
+ * @author Sayf Elhawary
+ */
+public class RandomPolicy implements MovePolicy {
+
+	private static final Action[] ACTIONS = Action.values(); // The possible
+	                                                         // actions.
+
+	private SplittableRandom random_; // The policy's own source of randomness.
+
+	/**
+	 * Creates a random policy with an unpredictable seed.
+	 */
+	public RandomPolicy () {
+		random_ = new SplittableRandom();
+	}
+
+	/**
+	 * Creates a random policy that always makes the same choices for the same
+	 * seed.
+	 * 
+	 * @param seed
+	 *          The seed for the policy's choices.
+	 */
+	public RandomPolicy ( long seed ) {
+		random_ = new SplittableRandom(seed);
+	}
+
+	@Override
+	public Action nextAction ( Game game ) {
+		return ACTIONS[random_.nextInt(ACTIONS.length)];
+	}
+
+}
@@ -0,0 +1,38 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event for the UI repainting the changes of one or
+ * more game steps, lasting as long as the repaint takes.
+ * 
+ * @author Sayf Elhawary
+ */
+@Name("omino.Repaint")
+@Label("Repaint")
+@Category({ "Omino", "UI" })
+@Description("The UI redraws what changed since the last frame")
+@StackTrace(false)
+public class RepaintEvent extends jdk.jfr.Event {
+
+	@Label("Lag")
+	@Description("The time from the first change being handled to the repaint")
+	@Timespan(Timespan.NANOSECONDS)
+	long lag; // The time the changes waited for a frame.
+
+	@Label("Rows Repainted")
+	int rowsRepainted; // The number of board rows drawn.
+
+	@Label("Piece Repainted")
+	boolean pieceRepainted; // Whether the current piece was drawn.
+
+	@Label("Stack Height")
+	int stackHeight; // The height of the stack in the frame drawn.
+
+	@Label("Board Height")
+	int boardHeight; // The board's height, in blocks.
+
+}
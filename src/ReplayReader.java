@@ -0,0 +1,470 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays back a replay written by ReplayWriter. The game is re-simulated from
+ * the recorded actions and the piece generator's seed, with no UI and no
+ * timing, so a replay runs at full CPU speed. Files are memory-mapped, and
+ * events are decoded straight from the buffer.
+ * 
+ * To start part way through, seek restores the game from the nearest keyframe
+ * at or before the desired piece and re-simulates only the pieces after it.
+ * The keyframe is found by a binary search of the index at the end of the
+ * mapped file, so only the pages of the index entries probed, the keyframe and
+ * the events after it are ever read.
+ * 
+ * @author Sayf Elhawary
+ */
+public class ReplayReader {
+
+	private static final Action[] ACTIONS = Action.values(); // The actions, by
+	                                                         // ordinal.
+
+	private ByteBuffer buffer_; // The replay, positioned at the next event.
+
+	private int version_; // The version of the replay's format.
+
+	private int eventsStart_, eventsEnd_; // The positions of the first event and
+	                                      // just after the last one.
+
+	private int indexStart_; // The position of the keyframe index.
+
+	private int keyframes_; // The number of keyframes in the index.
+
+	private int boardWidth_, boardHeight_; // The board's dimensions.
+
+	private int lookahead_; // The number of upcoming pieces queued.
+
+	private long tickNanos_; // The nanoseconds per tick, or 0 if the ticks have
+	                         // no fixed length.
+
+	private boolean seeded_; // Whether the pieces come from a
+	                         // SeededPieceGenerator.
+
+	private long seed_; // The generator's seed, if seeded_.
+
+	private int copies_; // The generator's copies per bag, if seeded_.
+
+	private long position_; // The generator's position when the game started,
+	                        // if seeded_.
+
+	private int[] queued_; // The pieces queued when the game started, if not
+	                       // seeded_.
+
+	private SeededPieceGenerator generator_; // The generator of the game being
+	                                         // played, if seeded_.
+
+	private long pieces_; // The number of pieces dealt.
+
+	private long tick_; // The tick of the last event read.
+
+	private long events_; // The number of events read.
+
+	/**
+	 * Opens a replay file.
+	 * 
+	 * @param file
+	 *          The replay's file.
+	 * @return A reader positioned at the start of the replay.
+	 * @throws IOException
+	 *           If the file cannot be mapped, including if it is larger than 2
+	 *           GiB, the most one mapping can hold.
+	 */
+	public static ReplayReader open ( Path file ) throws IOException {
+		try ( FileChannel channel = FileChannel.open(file,StandardOpenOption.READ) ) {
+			if ( channel.size() > Integer.MAX_VALUE ) {
+				throw new IOException("The replay is larger than 2 GiB, the most that can be mapped.");
+			}
+			// the mapping stays valid after the channel is closed
+			return new ReplayReader(channel.map(MapMode.READ_ONLY,0,channel.size()));
+		}
+	}
+
+	/**
+	 * Creates a reader for a replay held in a buffer.
+	 * 
+	 * @param buffer
+	 *          The replay, from its position to its limit. The buffer's position
+	 *          is not changed.
+	 */
+	public ReplayReader ( ByteBuffer buffer ) {
+		buffer_ = buffer.slice();
+		if ( buffer_.remaining() < 5 || buffer_.getInt() != ReplayWriter.MAGIC ) {
+			throw new IllegalArgumentException("The buffer does not hold an Omino! replay.");
+		}
+		version_ = buffer_.get();
+		if ( version_ < 1 || version_ > ReplayWriter.VERSION ) {
+			throw new IllegalArgumentException("The replay's version is not supported.");
+		}
+		boardWidth_ = (int) readVarint();
+		boardHeight_ = (int) readVarint();
+		lookahead_ = (int) readVarint();
+		long pieceSet = readLong();
+		int polyominoes = (int) readVarint();
+		if ( pieceSet != Game.getPieceSetId()
+		    || polyominoes != Game.getNumPolyominoes() ) {
+			throw new IllegalArgumentException("The replay was recorded with a different piece set.");
+		}
+		tickNanos_ = readVarint();
+		if ( version_ >= 2 ) {
+			readVarint(); // the keyframe interval, which the index makes redundant
+		}
+		seeded_ = readByte() == ReplayWriter.SEEDED;
+		if ( seeded_ ) {
+			seed_ = readLong();
+			copies_ = (int) readVarint();
+			position_ = readVarint();
+		} else {
+			queued_ = new int[lookahead_];
+			for ( int i = 0 ; i < lookahead_ ; i++ ) {
+				queued_[i] = (int) readVarint();
+			}
+		}
+		eventsStart_ = buffer_.position();
+		eventsEnd_ = buffer_.limit();
+		indexStart_ = eventsEnd_;
+		keyframes_ = 0;
+		int trailer = buffer_.limit() - ReplayWriter.TRAILER_SIZE;
+		if ( version_ >= 2 && trailer >= eventsStart_
+		    && buffer_.getInt(buffer_.limit() - Integer.BYTES) == ReplayWriter.INDEX_MAGIC ) {
+			// a replay whose writer was never closed has no trailer, but its events
+			// can still be played
+			long indexStart = buffer_.getLong(trailer);
+			int keyframes = buffer_.getInt(trailer + Long.BYTES);
+			if ( indexStart < eventsStart_ || keyframes < 0
+			    || indexStart + keyframes * 2L * Long.BYTES != trailer ) {
+				throw new IllegalArgumentException("The replay's index is corrupt.");
+			}
+			indexStart_ = (int) indexStart;
+			eventsEnd_ = indexStart_;
+			keyframes_ = keyframes;
+		}
+		tick_ = 0;
+		events_ = 0;
+		pieces_ = 0;
+	}
+
+	/**
+	 * Creates a game in the state the replay starts from and moves the reader
+	 * back to the first event.
+	 * 
+	 * @return The game.
+	 */
+	public Game newGame () {
+		buffer_.position(eventsStart_);
+		tick_ = 0;
+		events_ = 0;
+		pieces_ = 0;
+		PieceGenerator generator;
+		if ( seeded_ ) {
+			int count = Game.getNumPolyominoes();
+			generator_ = copies_ == 0 ? SeededPieceGenerator.uniform(count,seed_)
+			    : SeededPieceGenerator.bag(count,copies_,seed_);
+			generator_.seek(position_);
+			generator = generator_;
+		} else {
+			generator = new RecordedPieces();
+		}
+		Game game = new Game(generator,boardWidth_,boardHeight_);
+		if ( game.getLookahead() != lookahead_ ) {
+			throw new IllegalArgumentException("The replay was recorded with a different lookahead.");
+		}
+		return game;
+	}
+
+	/**
+	 * Applies the next event of the replay to a game.
+	 * 
+	 * @param game
+	 *          The game made by newGame, with every earlier event applied.
+	 * @return True if an event was applied, false if the replay has ended.
+	 */
+	public boolean step ( Game game ) {
+		int type;
+		do {
+			if ( buffer_.position() >= eventsEnd_ ) {
+				return false;
+			}
+			type = readEvent();
+			if ( type == ReplayWriter.PIECE ) {
+				if ( version_ < 2 || readVarint() != 0 ) {
+					throw new IllegalArgumentException("The replay has a piece that was not dealt.");
+				}
+				// a keyframe, which playing from the start does not need
+				int length = (int) readVarint();
+				buffer_.position(buffer_.position() + length);
+			}
+		} while ( type == ReplayWriter.PIECE );
+		long dealt = game.getPiecesDealt();
+		if ( type < ReplayWriter.START ) {
+			game.movePiece(ACTIONS[type]);
+		} else if ( type == ReplayWriter.START ) {
+			game.start();
+		} else {
+			game.reset();
+		}
+		events_++;
+		pieces_ += game.getPiecesDealt() - dealt;
+		return true;
+	}
+
+	/**
+	 * Creates a game in its state just after a piece was dealt, restoring it
+	 * from the nearest keyframe at or before that piece and playing the events
+	 * since. The reader is left positioned after the event that dealt the piece.
+	 * 
+	 * @param piece
+	 *          The number of pieces dealt since the start of the replay, over
+	 *          every game it holds. piece >= 0.
+	 * @return The game, or at the end of the replay if it deals fewer pieces.
+	 */
+	public Game seek ( long piece ) {
+		if ( piece < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		Game game = newGame();
+		// the last keyframe at or before the piece
+		int low = 0, high = keyframes_ - 1, found = -1;
+		while ( low <= high ) {
+			int middle = (low + high) >>> 1;
+			if ( getKeyframePiece(middle) <= piece ) {
+				found = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		if ( found >= 0 ) {
+			restore(game,found);
+		}
+		while ( pieces_ < piece && step(game) ) {
+		}
+		return game;
+	}
+
+	/**
+	 * Plays the whole replay.
+	 * 
+	 * @return The game, in its state at the end of the replay.
+	 */
+	public Game play () {
+		Game game = newGame();
+		while ( step(game) ) {
+		}
+		return game;
+	}
+
+	/**
+	 * Gets the number of keyframes in the replay's index.
+	 * 
+	 * @return The number of keyframes.
+	 */
+	public int getKeyframeCount () {
+		return keyframes_;
+	}
+
+	/**
+	 * Gets the piece a keyframe was taken at.
+	 * 
+	 * @param keyframe
+	 *          The index of the keyframe. keyframe >= 0 and keyframe <
+	 *          getKeyframeCount().
+	 * @return The number of pieces dealt when the keyframe was taken.
+	 */
+	public long getKeyframePiece ( int keyframe ) {
+		if ( keyframe < 0 || keyframe >= keyframes_ ) {
+			throw new IllegalArgumentException("The index is out of bounds. Please try again.");
+		}
+		return buffer_.getLong(indexStart_ + keyframe * 2 * Long.BYTES);
+	}
+
+	/**
+	 * Gets the board's width.
+	 * 
+	 * @return The board's width.
+	 */
+	public int getBoardWidth () {
+		return boardWidth_;
+	}
+
+	/**
+	 * Gets the board's height.
+	 * 
+	 * @return The board's height.
+	 */
+	public int getBoardHeight () {
+		return boardHeight_;
+	}
+
+	/**
+	 * Gets the length of a tick.
+	 * 
+	 * @return The nanoseconds per tick, or 0 if the ticks have no fixed length.
+	 */
+	public long getTickNanos () {
+		return tickNanos_;
+	}
+
+	/**
+	 * Gets the tick of the last event read, counted from the start of the
+	 * replay.
+	 * 
+	 * @return The tick.
+	 */
+	public long getTick () {
+		return tick_;
+	}
+
+	/**
+	 * Gets the number of actions, starts and resets played since the start of
+	 * the replay.
+	 * 
+	 * @return The number of events.
+	 */
+	public long getEvents () {
+		return events_;
+	}
+
+	/**
+	 * Gets the number of pieces dealt since the start of the replay.
+	 * 
+	 * @return The number of pieces.
+	 */
+	public long getPieces () {
+		return pieces_;
+	}
+
+	/**
+	 * Restores a game from a keyframe and moves the reader just after it.
+	 * 
+	 * @param game
+	 *          The game made by newGame.
+	 * @param keyframe
+	 *          The index of the keyframe.
+	 */
+	private void restore ( Game game, int keyframe ) {
+		long offset = buffer_.getLong(indexStart_ + (keyframe * 2 + 1) * Long.BYTES);
+		if ( offset < eventsStart_ || offset >= eventsEnd_ ) {
+			throw new IllegalArgumentException("The replay's index is corrupt.");
+		}
+		buffer_.position((int) offset);
+		if ( readEvent() != ReplayWriter.PIECE || readVarint() != 0 ) {
+			throw new IllegalArgumentException("The replay's index is corrupt.");
+		}
+		readVarint(); // the keyframe's length
+		pieces_ = buffer_.getLong();
+		events_ = buffer_.getLong();
+		tick_ = buffer_.getLong();
+		long position = buffer_.getLong();
+		if ( seeded_ ) {
+			generator_.seek(position);
+		}
+		game.readState(buffer_);
+	}
+
+	/**
+	 * Reads the next event's word, advancing the clock.
+	 * 
+	 * @return The event's type.
+	 */
+	private int readEvent () {
+		long word = readVarint();
+		tick_ += word >>> ReplayWriter.TYPE_BITS;
+		return (int) word & ((1 << ReplayWriter.TYPE_BITS) - 1);
+	}
+
+	/**
+	 * Reads a varint.
+	 * 
+	 * @return The number.
+	 */
+	private long readVarint () {
+		long value = 0;
+		for ( int shift = 0 ; shift < 64 ; shift += 7 ) {
+			byte b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ( b >= 0 ) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("The replay has a malformed number.");
+	}
+
+	/**
+	 * Reads a long.
+	 * 
+	 * @return The number.
+	 */
+	private long readLong () {
+		if ( buffer_.remaining() < Long.BYTES ) {
+			throw new IllegalArgumentException("The replay is truncated.");
+		}
+		return buffer_.getLong();
+	}
+
+	/**
+	 * Reads a byte.
+	 * 
+	 * @return The byte.
+	 */
+	private byte readByte () {
+		if ( !buffer_.hasRemaining() ) {
+			throw new IllegalArgumentException("The replay is truncated.");
+		}
+		return buffer_.get();
+	}
+
+	/**
+	 * Deals the pieces recorded in the replay: first the ones queued when the
+	 * game started, then each PIECE event, which follows the event whose move
+	 * dealt it.
+	 */
+	private class RecordedPieces implements PieceGenerator {
+
+		private int dealt_ = 0; // The number of pieces dealt.
+
+		@Override
+		public int next () {
+			if ( dealt_ < queued_.length ) {
+				return queued_[dealt_++];
+			}
+			if ( readEvent() != ReplayWriter.PIECE ) {
+				throw new IllegalArgumentException("The replay is missing a piece.");
+			}
+			// version 1 wrote the index itself; later ones reserve 0 for keyframes
+			long polyomino = version_ < 2 ? readVarint() : readVarint() - 1;
+			if ( polyomino < 0 || polyomino >= Game.getNumPolyominoes() ) {
+				throw new IllegalArgumentException("The replay is missing a piece.");
+			}
+			return (int) polyomino;
+		}
+
+	}
+
+	/**
+	 * Plays back replay files and prints how each game ended.
+	 * 
+	 * @param args
+	 *          The replay files.
+	 * @throws IOException
+	 *           If a file cannot be read.
+	 */
+	public static void main ( String[] args ) throws IOException {
+		for ( String file : args ) {
+			ReplayReader reader = open(Paths.get(file));
+			long start = System.nanoTime();
+			Game game = reader.play();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%s: score %d, %d rows, %d pieces, %d events in %.3f s (%.0f events/sec)%n",
+			                  file,game.getScore(),game.getClearedRows(),
+			                  game.getPiecesPlayed(),reader.getEvents(),seconds,
+			                  reader.getEvents() / seconds);
+		}
+	}
+
+}
@@ -0,0 +1,273 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Tester for ReplayWriter and ReplayReader.
+ * 
+ * @author Sayf Elhawary
+ */
+public class ReplayTester {
+
+	public static void main(String[] args) throws IOException {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: play - seeded bot game
+			// starting state: bot game with a bag generator, recorded from the start
+			// input: the replay
+			// expected result: the replayed game ends in the same state, about one
+			// byte per action, with the writer's size matching the bytes written
+			System.out.println("play - seeded bot game");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.bag(Game.getNumPolyominoes(), 2, 42));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ReplayWriter writer = new ReplayWriter(bytes);
+			game.record(writer);
+			PlacementBot bot = new PlacementBot();
+			int actions = 0;
+			game.start();
+			for (int i = 0; i < 5000 && !game.getGameOver(); i++) {
+				Action action = bot.nextAction(game);
+				game.movePiece(action == null ? Action.DOWN : action);
+				actions++;
+			}
+			writer.close();
+			ReplayReader reader = new ReplayReader(ByteBuffer.wrap(bytes.toByteArray()));
+			Game replayed = reader.play();
+			boolean test = replayed.getScore() == game.getScore() && replayed.getClearedRows() == game.getClearedRows()
+			    && replayed.getPiecesPlayed() == game.getPiecesPlayed() && replayed.getStateKey() == game.getStateKey()
+			    && reader.getEvents() == actions + 1 && bytes.size() < actions + 64
+			    && writer.getSize() == bytes.size();
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED! " + bytes.size() + " bytes for " + actions + " actions");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: play - recorded pieces, reset and ticks
+			// starting state: game with a generator that is not seeded, recorded
+			// with a clock
+			// input: random actions, a reset, a second game
+			// expected result: the replayed game ends in the same state at the same
+			// tick
+			System.out.println("play - recorded pieces, reset and ticks");
+			System.out.println();
+			SplittableRandom random = new SplittableRandom(7);
+			Game game = new Game(() -> random.nextInt(Game.getNumPolyominoes()));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ReplayWriter writer = new ReplayWriter(bytes);
+			long[] clock = { 100 };
+			writer.setClock(() -> clock[0], 1_000_000);
+			game.record(writer);
+			Action[] actions = Action.values();
+			for (int round = 0; round < 2; round++) {
+				game.start();
+				for (int i = 0; i < 2000 && !game.getGameOver(); i++) {
+					clock[0] += random.nextInt(40);
+					game.movePiece(actions[random.nextInt(actions.length)]);
+				}
+				game.reset();
+			}
+			game.start();
+			for (int i = 0; i < 300; i++) {
+				clock[0] += random.nextInt(3);
+				game.movePiece(actions[random.nextInt(actions.length)]);
+			}
+			writer.close();
+			ReplayReader reader = new ReplayReader(ByteBuffer.wrap(bytes.toByteArray()));
+			Game replayed = reader.play();
+			boolean test = replayed.getScore() == game.getScore() && replayed.getPiecesPlayed() == game.getPiecesPlayed()
+			    && replayed.getStateKey() == game.getStateKey()
+			    && replayed.getNextPolyomino(game.getLookahead() - 1) == game.getNextPolyomino(game.getLookahead() - 1)
+			    && reader.getTick() == clock[0] - 100 && reader.getTickNanos() == 1_000_000;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: seek - from keyframes
+			// starting state: bot games with seeded and recorded pieces, each
+			// reset part way, with a keyframe every 50 pieces
+			// input: pieces before, on and between keyframes
+			// expected result: the same state as playing from the start, and the
+			// same end
+			System.out.println("seek - from keyframes");
+			System.out.println();
+			boolean test = true;
+			for (int kind = 0; kind < 2; kind++) {
+				SplittableRandom random = new SplittableRandom(11);
+				Game game = kind == 0 ? new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 9))
+				    : new Game(() -> random.nextInt(Game.getNumPolyominoes()));
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				ReplayWriter writer = new ReplayWriter(bytes);
+				long[] clock = { 0 };
+				writer.setClock(() -> clock[0], 0);
+				writer.setKeyframeInterval(50);
+				game.record(writer);
+				PlacementBot bot = new PlacementBot();
+				for (int round = 0; round < 2; round++) {
+					if (round > 0) {
+						game.reset();
+					}
+					game.start();
+					for (int i = 0; i < 5000 && !game.getGameOver(); i++) {
+						clock[0] += random.nextInt(5);
+						Action action = bot.nextAction(game);
+						game.movePiece(action == null ? Action.DOWN : action);
+					}
+				}
+				writer.close();
+				ReplayReader reader = new ReplayReader(ByteBuffer.wrap(bytes.toByteArray()));
+				Game full = reader.play();
+				long pieces = reader.getPieces();
+				test = test && reader.getKeyframeCount() == writer.getKeyframeCount() && reader.getKeyframeCount() == pieces / 50
+				    && full.getStateKey() == game.getStateKey() && pieces > 150;
+				long[] targets = { 0, 1, 49, 50, 51, 149, pieces / 2, pieces - 1, pieces };
+				for (long target : targets) {
+					Game sought = reader.seek(target);
+					long soughtTick = reader.getTick(), soughtEvents = reader.getEvents();
+					ReplayReader plain = new ReplayReader(ByteBuffer.wrap(bytes.toByteArray()));
+					Game expected = plain.newGame();
+					while (plain.getPieces() < target && plain.step(expected)) {
+					}
+					test = test && reader.getPieces() == target && sought.getStateKey() == expected.getStateKey()
+					    && sought.getScore() == expected.getScore() && sought.getClearedRows() == expected.getClearedRows()
+					    && sought.getPiecesPlayed() == expected.getPiecesPlayed()
+					    && sought.getGameOver() == expected.getGameOver()
+					    && sought.getCurrentPieceRow() == expected.getCurrentPieceRow()
+					    && sought.getNextPolyomino(0) == expected.getNextPolyomino(0)
+					    && soughtTick == plain.getTick() && soughtEvents == plain.getEvents();
+					while (reader.step(sought)) {
+					}
+					test = test && sought.getStateKey() == game.getStateKey() && sought.getScore() == game.getScore()
+					    && reader.getTick() == clock[0];
+				}
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: play - no trailer
+			// starting state: replay whose writer was never closed
+			// input: the bytes flushed so far
+			// expected result: the events are played, with no keyframes indexed
+			System.out.println("play - no trailer");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 3));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ReplayWriter writer = new ReplayWriter(bytes);
+			writer.setKeyframeInterval(10);
+			game.record(writer);
+			PlacementBot bot = new PlacementBot();
+			game.start();
+			for (int i = 0; i < 1000 && !game.getGameOver(); i++) {
+				Action action = bot.nextAction(game);
+				game.movePiece(action == null ? Action.DOWN : action);
+			}
+			writer.flush();
+			ReplayReader reader = new ReplayReader(ByteBuffer.wrap(bytes.toByteArray()));
+			Game replayed = reader.play();
+			boolean test = reader.getKeyframeCount() == 0 && writer.getKeyframeCount() > 0
+			    && replayed.getStateKey() == game.getStateKey() && replayed.getScore() == game.getScore();
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: record - after the game has started
+			// starting state: started game
+			// input: a writer
+			// expected result: IllegalStateException
+			System.out.println("record - after the game has started");
+			System.out.println();
+			Game game = new Game(SeededPieceGenerator.uniform(Game.getNumPolyominoes(), 42));
+			game.start();
+			boolean test = false;
+			try {
+				game.record(new ReplayWriter(new ByteArrayOutputStream()));
+			} catch (IllegalStateException e) {
+				test = true;
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: ReplayReader - not a replay
+			// starting state: n/a
+			// input: bytes that are not a replay
+			// expected result: IllegalArgumentException
+			System.out.println("ReplayReader - not a replay");
+			System.out.println();
+			boolean test = false;
+			try {
+				new ReplayReader(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6 }));
+			} catch (IllegalArgumentException e) {
+				test = true;
+			}
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: open - larger than 2 GiB
+			// starting state: n/a
+			// input: a sparse file of 2 GiB and one byte
+			// expected result: IOException
+			System.out.println("open - larger than 2 GiB");
+			System.out.println();
+			Path file = Files.createTempFile("omino", ".omr");
+			try (RandomAccessFile sparse = new RandomAccessFile(file.toFile(), "rw")) {
+				sparse.setLength(Integer.MAX_VALUE + 1L);
+			}
+			boolean test = false;
+			try {
+				ReplayReader.open(file);
+			} catch (IOException e) {
+				test = true;
+			}
+			Files.delete(file);
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+}
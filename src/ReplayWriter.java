@@ -0,0 +1,403 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Records a game of Omino! as a compact binary replay. A replay holds only
+ * what is needed to play the game again: a header with the board's size, the
+ * piece set and the piece generator's seed, then the actions taken, each with
+ * the number of clock ticks since the previous event. Games whose generator is
+ * not a SeededPieceGenerator also record each polyomino as it is dealt. Every
+ * few pieces the writer also stores a keyframe, the game's full state, and an
+ * index of the keyframes ends the file, so a reader can start from the
+ * nearest keyframe instead of the first piece.
+ *
+ * The header is the int "OMRP", the version byte, the board's width and
+ * height and the lookahead as varints, the piece set's id as a long and its
+ * number of polyominos as a varint, the nanoseconds per tick and the pieces
+ * per keyframe as varints, then the generator: SEEDED followed by the seed as
+ * a long and the copies per bag and the generator's position as varints, or
+ * RECORDED followed by the queued polyominos as varints.
+ *
+ * Each event is the varint ticks << 3 | type, where the type is an Action's
+ * ordinal, START, RESET or PIECE. A PIECE is followed by the varint polyomino
+ * index + 1, or by 0 for a keyframe, which is followed by the varint length of
+ * its contents: the pieces dealt, events written and tick as longs, the
+ * generator's position as a long (-1 if it is not seeded), then the game's
+ * state. Varints are little-endian groups of 7 bits, so an action played
+ * within 16 ticks of the previous event takes one byte.
+ *
+ * The index follows the last event: the number of pieces dealt and the file
+ * offset of each keyframe, as longs. The file ends with a trailer: the offset
+ * of the index as a long, the number of keyframes as an int and the int
+ * "OMRI". Version 1 replays have no keyframes, index or trailer, and their
+ * PIECE events hold the polyomino index itself.
+ *
+ * @author Sayf Elhawary
+ */
+public class ReplayWriter implements Closeable {
+
+	static final int MAGIC = 0x4F4D5250; // "OMRP"
+
+	static final int INDEX_MAGIC = 0x4F4D5249; // "OMRI"
+
+	static final int VERSION = 2; // The version of the format written.
+
+	static final int START = 5, RESET = 6, PIECE = 7; // The types of the events
+	                                                   // that are not actions.
+
+	static final int TYPE_BITS = 3; // The bits of an event's type.
+
+	static final int SEEDED = 1, RECORDED = 0; // How the pieces are replayed.
+
+	static final int TRAILER_SIZE = Long.BYTES + 2 * Integer.BYTES; // The bytes
+	                                                                // of the
+	                                                                // trailer.
+
+	private static final int DEFAULT_KEYFRAME_INTERVAL = 1000; // The pieces per
+	                                                           // keyframe.
+
+	private DataOutputStream out_; // The destination of the replay.
+
+	private long size_; // The number of bytes written. DataOutputStream's own
+	                    // count is an int, which stops at 2 GiB.
+
+	private LongSupplier clock_; // The clock events are timed with.
+
+	private long tickNanos_; // The nanoseconds per tick, or 0 if the ticks have
+	                         // no fixed length.
+
+	private long firstTick_, lastTick_; // The ticks of the header and of the
+	                                    // last event written.
+
+	private int keyframeInterval_; // The pieces per keyframe, or 0 for none.
+
+	private SeededPieceGenerator seeded_; // The game's generator, or null if the
+	                                      // polyominos dealt are written.
+
+	private long pieces_; // The number of pieces dealt since the header.
+
+	private long events_; // The number of actions, starts and resets written.
+
+	private boolean keyframeDue_; // Whether a keyframe is written at the end of
+	                              // the current step.
+
+	private ByteBuffer keyframe_; // The contents of the keyframe being written.
+
+	private long[] index_; // The pieces dealt and offset of each keyframe.
+
+	private int keyframes_; // The number of keyframes written.
+
+	private boolean started_, closed_; // Whether the header has been written,
+	                                   // and whether the writer is closed.
+
+	/**
+	 * Creates a writer that records every event at tick 0. A game starts
+	 * recording with Game.record.
+	 *
+	 * @param out
+	 *          The destination of the replay.
+	 */
+	public ReplayWriter ( OutputStream out ) {
+		out_ =
+		    new DataOutputStream(new CountingStream(new BufferedOutputStream(out)));
+		size_ = 0;
+		clock_ = () -> 0;
+		tickNanos_ = 0;
+		firstTick_ = 0;
+		lastTick_ = 0;
+		keyframeInterval_ = DEFAULT_KEYFRAME_INTERVAL;
+		seeded_ = null;
+		pieces_ = 0;
+		events_ = 0;
+		keyframeDue_ = false;
+		keyframe_ = ByteBuffer.allocate(1024);
+		index_ = new long[32];
+		keyframes_ = 0;
+		started_ = false;
+		closed_ = false;
+	}
+
+	/**
+	 * Sets the clock events are timed with, such as a GameLoop's gravity ticks.
+	 * It must be set before recording starts.
+	 *
+	 * @param clock
+	 *          The clock. Its ticks must never decrease.
+	 * @param tickNanos
+	 *          The nanoseconds per tick, or 0 if the ticks have no fixed length.
+	 *          tickNanos >= 0.
+	 */
+	public void setClock ( LongSupplier clock, long tickNanos ) {
+		if ( tickNanos < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		if ( started_ ) {
+			throw new IllegalStateException("The clock cannot change once recording has started.");
+		}
+		clock_ = clock;
+		tickNanos_ = tickNanos;
+	}
+
+	/**
+	 * Sets how often a keyframe is written. It must be set before recording
+	 * starts.
+	 *
+	 * @param pieces
+	 *          The number of pieces dealt between keyframes, or 0 to write none.
+	 *          pieces >= 0.
+	 */
+	public void setKeyframeInterval ( int pieces ) {
+		if ( pieces < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		if ( started_ ) {
+			throw new IllegalStateException("The keyframe interval cannot change once recording has started.");
+		}
+		keyframeInterval_ = pieces;
+	}
+
+	/**
+	 * Gets the number of bytes written so far.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getSize () {
+		return size_;
+	}
+
+	/**
+	 * Gets the number of keyframes written so far.
+	 *
+	 * @return The number of keyframes.
+	 */
+	public int getKeyframeCount () {
+		return keyframes_;
+	}
+
+	/**
+	 * Writes the header of the replay.
+	 *
+	 * @param boardWidth
+	 *          The board's width.
+	 * @param boardHeight
+	 *          The board's height.
+	 * @param pieces
+	 *          The game's upcoming pieces.
+	 */
+	void writeHeader ( int boardWidth, int boardHeight, PieceQueue pieces ) {
+		if ( started_ ) {
+			throw new IllegalStateException("The replay has already been started.");
+		}
+		try {
+			out_.writeInt(MAGIC);
+			out_.writeByte(VERSION);
+			writeVarint(boardWidth);
+			writeVarint(boardHeight);
+			writeVarint(pieces.getLookahead());
+			out_.writeLong(Game.getPieceSetId());
+			writeVarint(Game.getNumPolyominoes());
+			writeVarint(tickNanos_);
+			writeVarint(keyframeInterval_);
+			if ( pieces.getGenerator() instanceof SeededPieceGenerator ) {
+				// the queue holds the pieces just before the generator's position
+				seeded_ = (SeededPieceGenerator) pieces.getGenerator();
+				out_.writeByte(SEEDED);
+				out_.writeLong(seeded_.getSeed());
+				writeVarint(seeded_.getCopies());
+				writeVarint(seeded_.getPosition() - pieces.getLookahead());
+			} else {
+				out_.writeByte(RECORDED);
+				for ( int i = 0 ; i < pieces.getLookahead() ; i++ ) {
+					writeVarint(pieces.peek(i));
+				}
+			}
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
+		firstTick_ = clock_.getAsLong();
+		lastTick_ = firstTick_;
+		started_ = true;
+	}
+
+	/**
+	 * Writes an event.
+	 *
+	 * @param type
+	 *          The event's type: an Action's ordinal, START or RESET.
+	 */
+	void writeEvent ( int type ) {
+		try {
+			writeEventWord(type);
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
+		events_++;
+	}
+
+	/**
+	 * Notes a polyomino dealt by the game's generator, writing it if the
+	 * generator cannot be replayed from its seed.
+	 *
+	 * @param polyomino
+	 *          The index of the polyomino.
+	 */
+	void writePiece ( int polyomino ) {
+		if ( seeded_ == null ) {
+			try {
+				writeEventWord(PIECE);
+				writeVarint(polyomino + 1);
+			} catch ( IOException e ) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		pieces_++;
+		if ( keyframeInterval_ > 0 && pieces_ % keyframeInterval_ == 0 ) {
+			keyframeDue_ = true;
+		}
+	}
+
+	/**
+	 * Finishes a step of the game, writing a keyframe if one is due.
+	 *
+	 * @param game
+	 *          The game, in its state at the end of the step.
+	 */
+	void endStep ( Game game ) {
+		if ( !keyframeDue_ ) {
+			return;
+		}
+		keyframeDue_ = false;
+		int size = 4 * Long.BYTES + game.getStateSize();
+		if ( keyframe_.capacity() < size ) {
+			keyframe_ = ByteBuffer.allocate(Math.max(size,keyframe_.capacity() * 2));
+		}
+		keyframe_.clear();
+		keyframe_.putLong(pieces_);
+		keyframe_.putLong(events_);
+		keyframe_.putLong(lastTick_ - firstTick_);
+		keyframe_.putLong(seeded_ == null ? -1 : seeded_.getPosition());
+		game.writeState(keyframe_);
+		if ( keyframes_ * 2 == index_.length ) {
+			index_ = Arrays.copyOf(index_,index_.length * 2);
+		}
+		index_[keyframes_ * 2] = pieces_;
+		index_[keyframes_ * 2 + 1] = size_;
+		keyframes_++;
+		try {
+			// the keyframe is timed at the step's last event
+			writeVarint(PIECE);
+			writeVarint(0);
+			writeVarint(keyframe_.position());
+			out_.write(keyframe_.array(),0,keyframe_.position());
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes any buffered bytes to the destination.
+	 *
+	 * @throws IOException
+	 *           If the destination cannot be written.
+	 */
+	public void flush () throws IOException {
+		out_.flush();
+	}
+
+	/**
+	 * Writes the index of the keyframes and the trailer, and closes the
+	 * destination.
+	 *
+	 * @throws IOException
+	 *           If the destination cannot be written.
+	 */
+	@Override
+	public void close () throws IOException {
+		if ( closed_ ) {
+			return;
+		}
+		closed_ = true;
+		try {
+			if ( started_ ) {
+				long indexOffset = size_;
+				for ( int i = 0 ; i < keyframes_ * 2 ; i++ ) {
+					out_.writeLong(index_[i]);
+				}
+				out_.writeLong(indexOffset);
+				out_.writeInt(keyframes_);
+				out_.writeInt(INDEX_MAGIC);
+			}
+		} finally {
+			out_.close();
+		}
+	}
+
+	/**
+	 * Writes the varint of an event's type and the ticks since the previous
+	 * event.
+	 *
+	 * @param type
+	 *          The event's type.
+	 */
+	private void writeEventWord ( int type ) throws IOException {
+		if ( !started_ ) {
+			throw new IllegalStateException("The replay has not been started.");
+		}
+		long tick = clock_.getAsLong();
+		writeVarint(Math.max(tick - lastTick_,0) << TYPE_BITS | type);
+		lastTick_ = Math.max(tick,lastTick_);
+	}
+
+	/**
+	 * Writes a number as a varint: groups of 7 bits, lowest first, with the top
+	 * bit of each byte set if more follow.
+	 *
+	 * @param value
+	 *          The number, taken as unsigned.
+	 */
+	private void writeVarint ( long value ) throws IOException {
+		while ( (value & ~0x7FL) != 0 ) {
+			out_.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out_.writeByte((int) value);
+	}
+
+	/**
+	 * Passes bytes through to a stream, counting them in size_.
+	 */
+	private class CountingStream extends FilterOutputStream {
+
+		/**
+		 * Creates a stream that counts the bytes written to another.
+		 *
+		 * @param destination
+		 *          The stream the bytes are written to.
+		 */
+		CountingStream ( OutputStream destination ) {
+			super(destination);
+		}
+
+		@Override
+		public void write ( int b ) throws IOException {
+			out.write(b);
+			size_++;
+		}
+
+		@Override
+		public void write ( byte[] b, int off, int len ) throws IOException {
+			out.write(b,off,len);
+			size_ += len;
+		}
+
+	}
+
+}
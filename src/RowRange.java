@@ -0,0 +1,70 @@
+/**
+ * A range of board rows affected by a change, carried by board change events
+ * so that listeners can update only those rows.
+ * 
+ * @author Sayf Elhawary
+ */
+public class RowRange {
+
+	private int low_, high_; // The lowest and highest rows of the range,
+	                         // inclusive. The range is empty if low_ > high_.
+
+	/**
+	 * Creates a range of rows.
+	 * 
+	 * @param low
+	 *          The lowest row of the range.
+	 * @param high
+	 *          The highest row of the range, inclusive. The range is empty if
+	 *          high < low.
+	 */
+	public RowRange ( int low, int high ) {
+		low_ = low;
+		high_ = high;
+	}
+
+	/**
+	 * Gets the lowest row of the range.
+	 * 
+	 * @return The lowest row.
+	 */
+	public int getLow () {
+		return low_;
+	}
+
+	/**
+	 * Gets the highest row of the range.
+	 * 
+	 * @return The highest row, inclusive.
+	 */
+	public int getHigh () {
+		return high_;
+	}
+
+	/**
+	 * Gets whether the range contains no rows.
+	 * 
+	 * @return True if the range is empty, false otherwise.
+	 */
+	public boolean isEmpty () {
+		return low_ > high_;
+	}
+
+	/**
+	 * Gets the smallest range containing this range and another.
+	 * 
+	 * @param other
+	 *          The other range.
+	 * @return The combined range.
+	 */
+	public RowRange union ( RowRange other ) {
+		if ( isEmpty() ) {
+			return other;
+		}
+		if ( other.isEmpty() ) {
+			return this;
+		}
+		return new RowRange(Math.min(low_,other.low_),Math.max(high_,other.high_));
+	}
+
+}
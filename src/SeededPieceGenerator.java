@@ -0,0 +1,208 @@
+/**
+ * A reproducible piece generator: the same seed always produces the same
+ * sequence of pieces. It either picks every piece uniformly at random or
+ * deals them from shuffled bags holding each polyomino a fixed number of
+ * times (a 7-bag in classic Tetris terms).
+ * 
+ * The random numbers are the SplitMix64 sequence that new
+ * SplittableRandom(seed) produces with nextLong(). The state is kept
+ * explicitly as the seed and a position in the sequence, so each game owns an
+ * independent generator with no shared atomic state, and a generator can be
+ * checkpointed and moved to any position in constant time.
+ * 
+ * @author Sayf Elhawary
+ */
+public class SeededPieceGenerator implements PieceGenerator {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L; // The
+	                                                              // SplittableRandom
+	                                                              // seed increment.
+
+	private long seed_; // The seed of the sequence.
+
+	private int count_; // The number of polyominos to choose from. count_ > 0.
+
+	private int copies_; // The number of copies of each polyomino in a bag, or 0
+	                     // to choose uniformly at random.
+
+	private int[] bag_; // The shuffled contents of the current bag, or null for
+	                    // the uniform generator.
+
+	private long position_; // The number of pieces generated so far.
+
+	/**
+	 * Creates a generator.
+	 * 
+	 * @param count
+	 *          The number of polyominos to choose from. count > 0.
+	 * @param copies
+	 *          The number of copies of each polyomino in a bag, or 0 to choose
+	 *          uniformly at random. copies >= 0.
+	 * @param seed
+	 *          The seed of the sequence.
+	 */
+	private SeededPieceGenerator ( int count, int copies, long seed ) {
+		if ( count <= 0 || copies < 0 ) {
+			throw new IllegalArgumentException("The number of polyominos must be more than zero and the number of copies cannot be negative.");
+		}
+		seed_ = seed;
+		count_ = count;
+		copies_ = copies;
+		bag_ = copies == 0 ? null : new int[count * copies];
+		seek(0);
+	}
+
+	/**
+	 * Creates a generator that picks every piece uniformly at random.
+	 * 
+	 * @param count
+	 *          The number of polyominos to choose from. count > 0.
+	 * @param seed
+	 *          The seed of the sequence.
+	 * @return The generator.
+	 */
+	public static SeededPieceGenerator uniform ( int count, long seed ) {
+		return new SeededPieceGenerator(count,0,seed);
+	}
+
+	/**
+	 * Creates a generator that deals pieces from shuffled bags. Each bag holds
+	 * every polyomino the desired number of times.
+	 * 
+	 * @param count
+	 *          The number of polyominos to choose from. count > 0.
+	 * @param copies
+	 *          The number of copies of each polyomino in a bag. copies > 0.
+	 * @param seed
+	 *          The seed of the sequence.
+	 * @return The generator.
+	 */
+	public static SeededPieceGenerator bag ( int count, int copies, long seed ) {
+		if ( copies <= 0 ) {
+			throw new IllegalArgumentException("Input a number more than zero.");
+		}
+		return new SeededPieceGenerator(count,copies,seed);
+	}
+
+	@Override
+	public int next () {
+		int next;
+		if ( bag_ == null ) {
+			next = bounded(random(seed_,position_),count_);
+		} else {
+			int index = (int) (position_ % bag_.length);
+			if ( index == 0 ) {
+				fillBag(position_ / bag_.length);
+			}
+			next = bag_[index];
+		}
+		position_++;
+		return next;
+	}
+
+	/**
+	 * Moves the generator to a position in its sequence, so that the next piece
+	 * is the one that would follow the desired number of pieces.
+	 * 
+	 * @param position
+	 *          The number of pieces to skip from the start of the sequence.
+	 *          position >= 0.
+	 */
+	public void seek ( long position ) {
+		if ( position < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		position_ = position;
+		if ( bag_ != null && position % bag_.length != 0 ) {
+			fillBag(position / bag_.length);
+		}
+	}
+
+	/**
+	 * Gets the seed of the sequence.
+	 * 
+	 * @return The seed.
+	 */
+	public long getSeed () {
+		return seed_;
+	}
+
+	/**
+	 * Gets the number of polyominos chosen from.
+	 * 
+	 * @return The number of polyominos.
+	 */
+	public int getCount () {
+		return count_;
+	}
+
+	/**
+	 * Gets the number of copies of each polyomino in a bag.
+	 * 
+	 * @return The number of copies, or 0 if pieces are chosen uniformly.
+	 */
+	public int getCopies () {
+		return copies_;
+	}
+
+	/**
+	 * Gets the number of pieces generated so far.
+	 * 
+	 * @return The position in the sequence.
+	 */
+	public long getPosition () {
+		return position_;
+	}
+
+	/**
+	 * Refills and shuffles the bag. The shuffle of each bag uses its own stretch
+	 * of the random sequence, so any bag can be rebuilt without the ones before
+	 * it.
+	 * 
+	 * @param bag
+	 *          The index of the bag in the sequence.
+	 */
+	private void fillBag ( long bag ) {
+		for ( int i = 0 ; i < bag_.length ; i++ ) {
+			bag_[i] = i % count_;
+		}
+		long step = bag * bag_.length;
+		for ( int i = bag_.length - 1 ; i > 0 ; i-- ) {
+			int j = bounded(random(seed_,step + i),i + 1);
+			int swap = bag_[i];
+			bag_[i] = bag_[j];
+			bag_[j] = swap;
+		}
+	}
+
+	/**
+	 * Gets a number of the random sequence.
+	 * 
+	 * @param seed
+	 *          The seed of the sequence.
+	 * @param step
+	 *          The position of the number in the sequence. step >= 0.
+	 * @return The number at that position, which is what the (step + 1)th call
+	 *         to new SplittableRandom(seed).nextLong() returns.
+	 */
+	static long random ( long seed, long step ) {
+		long z = seed + (step + 1) * GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Maps a random number onto a range.
+	 * 
+	 * @param random
+	 *          The random number.
+	 * @param bound
+	 *          The size of the range. bound > 0.
+	 * @return A number in [0, bound).
+	 */
+	private static int bounded ( long random, int bound ) {
+		return (int) (((random >>> 32) * bound) >>> 32);
+	}
+
+}
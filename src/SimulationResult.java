@@ -0,0 +1,148 @@
+/**
+ * The aggregate outcome of a batch of simulated Omino! games.
+ * 
+ * @author Sayf Elhawary
+ */
+public class SimulationResult {
+
+	private Distribution scores_; // The final score of each game.
+
+	private Distribution clearedRows_; // The rows cleared in each game.
+
+	private Distribution piecesPlayed_; // The pieces played in each game.
+
+	private long moves_; // The total number of moves made in all games.
+
+	private long elapsedNanos_; // The wall-clock time the batch took.
+
+	/**
+	 * Creates an empty result.
+	 */
+	public SimulationResult () {
+		scores_ = new Distribution();
+		clearedRows_ = new Distribution();
+		piecesPlayed_ = new Distribution();
+		moves_ = 0;
+		elapsedNanos_ = 0;
+	}
+
+	/**
+	 * Records the outcome of a finished game.
+	 * 
+	 * @param game
+	 *          The game.
+	 * @param moves
+	 *          The number of moves made in the game.
+	 */
+	void add ( Game game, long moves ) {
+		scores_.add(game.getScore());
+		clearedRows_.add(game.getClearedRows());
+		piecesPlayed_.add(game.getPiecesPlayed());
+		moves_ += moves;
+	}
+
+	/**
+	 * Adds the games of another result to this one.
+	 * 
+	 * @param other
+	 *          The result to add.
+	 */
+	void addAll ( SimulationResult other ) {
+		scores_.addAll(other.scores_);
+		clearedRows_.addAll(other.clearedRows_);
+		piecesPlayed_.addAll(other.piecesPlayed_);
+		moves_ += other.moves_;
+	}
+
+	/**
+	 * Sets the wall-clock time the batch took.
+	 * 
+	 * @param elapsedNanos
+	 *          The elapsed time, in nanoseconds.
+	 */
+	void setElapsedNanos ( long elapsedNanos ) {
+		elapsedNanos_ = elapsedNanos;
+	}
+
+	/**
+	 * Gets the number of games played.
+	 * 
+	 * @return The number of games played.
+	 */
+	public long getGames () {
+		return scores_.getCount();
+	}
+
+	/**
+	 * Gets the distribution of final scores.
+	 * 
+	 * @return The distribution of final scores.
+	 */
+	public Distribution getScores () {
+		return scores_;
+	}
+
+	/**
+	 * Gets the distribution of rows cleared per game.
+	 * 
+	 * @return The distribution of rows cleared per game.
+	 */
+	public Distribution getClearedRows () {
+		return clearedRows_;
+	}
+
+	/**
+	 * Gets the distribution of pieces played per game.
+	 * 
+	 * @return The distribution of pieces played per game.
+	 */
+	public Distribution getPiecesPlayed () {
+		return piecesPlayed_;
+	}
+
+	/**
+	 * Gets the total number of moves made.
+	 * 
+	 * @return The total number of moves made.
+	 */
+	public long getMoves () {
+		return moves_;
+	}
+
+	/**
+	 * Gets the wall-clock time the batch took.
+	 * 
+	 * @return The elapsed time, in nanoseconds.
+	 */
+	public long getElapsedNanos () {
+		return elapsedNanos_;
+	}
+
+	/**
+	 * Gets the throughput in games.
+	 * 
+	 * @return The number of games played per second.
+	 */
+	public double getGamesPerSecond () {
+		return elapsedNanos_ == 0 ? 0 : getGames() * 1e9 / elapsedNanos_;
+	}
+
+	/**
+	 * Gets the throughput in moves.
+	 * 
+	 * @return The number of moves made per second.
+	 */
+	public double getMovesPerSecond () {
+		return elapsedNanos_ == 0 ? 0 : moves_ * 1e9 / elapsedNanos_;
+	}
+
+	@Override
+	public String toString () {
+		return String.format("%d games, %d moves in %.3f s (%.0f games/s, %.0f moves/s)%n"
+		    + "score:  %s%nrows:   %s%npieces: %s",
+		                     getGames(),moves_,elapsedNanos_ / 1e9,
+		                     getGamesPerSecond(),getMovesPerSecond(),scores_,
+		                     clearedRows_,piecesPlayed_);
+	}
+
+}
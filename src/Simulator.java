@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * Plays batches of independent Omino! games across all cores without a UI.
+ * Each game gets its own Game, piece generator and move policy, seeded from
+ * the batch seed and the game's index, so games share no mutable state, the
+ * batch scales with the number of cores and a batch with the same seed plays
+ * exactly the same games. Gravity is simulated by moving the piece down after
+ * every few policy moves, the way the UI's timer does between key presses.
+ * 
+ * @author Sayf Elhawary
+ */
+public class Simulator {
+
+	private static final int GAMES_PER_TASK = 4; // Games played by a task
+	                                             // without splitting it further.
+
+	private int games_; // The number of games to play. games_ >= 0.
+
+	private LongFunction<MovePolicy> policies_; // Makes a fresh policy for each
+	                                            // game from a seed.
+
+	private long seed_; // The seed of the batch.
+
+	private int bagCopies_; // The copies of each polyomino in a bag, or 0 for
+	                        // uniformly random pieces.
+
+	private int movesPerDown_; // The number of policy moves between gravity
+	                           // steps. movesPerDown_ >= 0.
+
+	private int boardWidth_, boardHeight_; // The size of the games' boards.
+
+	private long maxMoves_; // The most moves played in one game before it is
+	                        // abandoned. maxMoves_ > 0.
+
+	private ForkJoinPool pool_; // The pool the games run in.
+
+	private Path replays_; // The directory games are recorded to, or null.
+
+	/**
+	 * Creates a simulator for a batch of games.
+	 * 
+	 * @param games
+	 *          The number of games to play. games >= 0.
+	 * @param policies
+	 *          Makes a fresh move policy for each game from a seed.
+	 */
+	public Simulator ( int games, LongFunction<MovePolicy> policies ) {
+		if ( games < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		games_ = games;
+		policies_ = policies;
+		seed_ = new SplittableRandom().nextLong();
+		bagCopies_ = 0;
+		movesPerDown_ = 3;
+		boardWidth_ = Game.DEFAULT_BOARD_WIDTH;
+		boardHeight_ = Game.DEFAULT_BOARD_HEIGHT;
+		maxMoves_ = Long.MAX_VALUE;
+		pool_ = ForkJoinPool.commonPool();
+		replays_ = null;
+	}
+
+	/**
+	 * Sets the size of the games' boards, such as a giant board for stress
+	 * runs.
+	 * 
+	 * @param boardWidth
+	 *          The board's width, in blocks. It is at least as wide as every
+	 *          piece.
+	 * @param boardHeight
+	 *          The board's height, in blocks. boardHeight > 0.
+	 */
+	public void setBoardSize ( int boardWidth, int boardHeight ) {
+		if ( boardWidth <= 0 || boardHeight <= 0 ) {
+			throw new IllegalArgumentException("Input a number more than zero.");
+		}
+		boardWidth_ = boardWidth;
+		boardHeight_ = boardHeight;
+	}
+
+	/**
+	 * Sets the seed of the batch. Batches with the same seed and settings play
+	 * the same games.
+	 * 
+	 * @param seed
+	 *          The desired seed.
+	 */
+	public void setSeed ( long seed ) {
+		seed_ = seed;
+	}
+
+	/**
+	 * Sets how pieces are chosen.
+	 * 
+	 * @param bagCopies
+	 *          The number of copies of each polyomino in a shuffled bag, or 0 to
+	 *          choose every piece uniformly at random. bagCopies >= 0.
+	 */
+	public void setBagCopies ( int bagCopies ) {
+		if ( bagCopies < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		bagCopies_ = bagCopies;
+	}
+
+	/**
+	 * Sets the number of policy moves between gravity steps.
+	 * 
+	 * @param movesPerDown
+	 *          The number of moves. movesPerDown >= 0.
+	 */
+	public void setMovesPerDown ( int movesPerDown ) {
+		if ( movesPerDown < 0 ) {
+			throw new IllegalArgumentException("Input a number more than or equal to zero.");
+		}
+		movesPerDown_ = movesPerDown;
+	}
+
+	/**
+	 * Sets the most moves played in one game before it is abandoned.
+	 * 
+	 * @param maxMoves
+	 *          The number of moves. maxMoves > 0.
+	 */
+	public void setMaxMoves ( long maxMoves ) {
+		if ( maxMoves <= 0 ) {
+			throw new IllegalArgumentException("Input a number more than zero.");
+		}
+		maxMoves_ = maxMoves;
+	}
+
+	/**
+	 * Sets the pool the games run in.
+	 * 
+	 * @param pool
+	 *          The desired pool.
+	 */
+	public void setPool ( ForkJoinPool pool ) {
+		pool_ = pool;
+	}
+
+	/**
+	 * Sets the directory games are recorded to. Each game is written as a
+	 * replay named after its index in the batch, such as game-0.omr.
+	 * 
+	 * @param replays
+	 *          The directory, which must exist, or null to record nothing.
+	 */
+	public void setReplayDirectory ( Path replays ) {
+		replays_ = replays;
+	}
+
+	/**
+	 * Plays the batch of games.
+	 * 
+	 * @return The aggregate outcome of the games.
+	 */
+	public SimulationResult run () {
+		long start = System.nanoTime();
+		SimulationResult result = pool_.invoke(new SimulationTask(0,games_));
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Plays one game to the end.
+	 * 
+	 * @param index
+	 *          The index of the game in the batch.
+	 * @param result
+	 *          The result the game's outcome is added to.
+	 */
+	private void play ( int index, SimulationResult result ) {
+		long seed = SeededPieceGenerator.random(seed_,index);
+		int count = Game.getNumPolyominoes();
+		Game game = new Game(bagCopies_ == 0
+		    ? SeededPieceGenerator.uniform(count,seed)
+		    : SeededPieceGenerator.bag(count,bagCopies_,seed),boardWidth_,
+		                     boardHeight_);
+		MovePolicy policy = policies_.apply(~seed);
+		if ( replays_ == null ) {
+			play(game,policy,result);
+			return;
+		}
+		try ( ReplayWriter replay = new ReplayWriter(Files
+		    .newOutputStream(replays_.resolve("game-" + index + ".omr"))) ) {
+			game.record(replay);
+			play(game,policy,result);
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Plays a game to the end with a policy.
+	 * 
+	 * @param game
+	 *          The game, not yet started.
+	 * @param policy
+	 *          The policy that chooses the moves.
+	 * @param result
+	 *          The result the game's outcome is added to.
+	 */
+	private void play ( Game game, MovePolicy policy, SimulationResult result ) {
+		long moves = 0;
+		game.start();
+		while ( !game.getGameOver() && moves < maxMoves_ ) {
+			for ( int i = 0 ; i < movesPerDown_ && !game.getGameOver() ; i++ ) {
+				Action action = policy.nextAction(game);
+				if ( action != null ) {
+					game.movePiece(action);
+					moves++;
+				}
+			}
+			if ( !game.getGameOver() ) {
+				game.movePiece(Action.DOWN);
+				moves++;
+			}
+		}
+		result.add(game,moves);
+	}
+
+	/**
+	 * Plays a range of the batch's games, splitting the range across the pool.
+	 */
+	@SuppressWarnings("serial")
+	private class SimulationTask extends RecursiveTask<SimulationResult> {
+
+		private int from_, to_; // The games played, from_ inclusive to to_
+		                        // exclusive.
+
+		SimulationTask ( int from, int to ) {
+			from_ = from;
+			to_ = to;
+		}
+
+		@Override
+		protected SimulationResult compute () {
+			if ( to_ - from_ <= GAMES_PER_TASK ) {
+				SimulationResult result = new SimulationResult();
+				for ( int i = from_ ; i < to_ ; i++ ) {
+					play(i,result);
+				}
+				return result;
+			}
+			int middle = (from_ + to_) >>> 1;
+			SimulationTask left = new SimulationTask(from_,middle);
+			left.fork();
+			SimulationResult result = new SimulationTask(middle,to_).compute();
+			result.addAll(left.join());
+			return result;
+		}
+
+	}
+
+	/**
+	 * Plays a batch of games and prints the outcome.
+	 * 
+	 * @param args
+	 *          The number of games (default 1000), then optionally the seed of
+	 *          the batch, the number of copies of each polyomino in a bag, the
+	 *          policy: "random" (the default) or "bot" for PlacementBot, and
+	 *          the board's width and height.
+	 */
+	public static void main ( String[] args ) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		boolean bot = args.length > 3 && args[3].equals("bot");
+		Simulator simulator = new Simulator(games,bot
+		    ? seed -> new PlacementBot() : RandomPolicy::new);
+		if ( args.length > 1 ) {
+			simulator.setSeed(Long.parseLong(args[1]));
+		}
+		if ( args.length > 2 ) {
+			simulator.setBagCopies(Integer.parseInt(args[2]));
+		}
+		if ( args.length > 5 ) {
+			simulator.setBoardSize(Integer.parseInt(args[4]),
+			                       Integer.parseInt(args[5]));
+		}
+		System.out.println(simulator.run());
+	}
+
+}
@@ -0,0 +1,272 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of position evaluations shared by searching threads. A
+ * position is identified by a 64-bit key, such as a board hash mixed with the
+ * pieces still to be placed, and maps to its score, its best move and the
+ * depth it was searched to.
+ * 
+ * The table is a fixed array of longs: two-entry buckets, each entry a key and
+ * a packed data word. An entry is stored as key ^ data next to data, so a
+ * reader that sees halves of two different writes finds a key that does not
+ * match and treats it as a miss; no locks are needed. When both entries of a
+ * bucket are taken, the new position replaces an entry from an older search
+ * first, then the one searched less deeply.
+ * 
+ * @author Sayf Elhawary
+ */
+public class TranspositionTable {
+
+	public static final long MISS = 0; // What probe returns for a position that
+	                                   // is not in the table.
+
+	public static final int NO_MOVE = 0xFFFF; // The move stored for a position
+	                                          // whose best move does not fit in
+	                                          // the 16 bits of a move.
+
+	private static final int SCORE_SHIFT = 32, MOVE_SHIFT = 16, DEPTH_SHIFT = 8;
+	// The positions of the fields of a data word: the score as a float's bits,
+	// the move, one more than the depth, and the search's age.
+
+	private AtomicLongArray table_; // Two longs per entry, two entries per
+	                                // bucket.
+
+	private int mask_; // The number of buckets minus one.
+
+	private volatile int age_; // The age of the current search, 0 to 255.
+
+	private LongAdder probes_, hits_, stores_, evictions_; // The counters.
+
+	/**
+	 * Creates an empty table.
+	 * 
+	 * @param entries
+	 *          The number of positions the table can hold. It is rounded up to a
+	 *          power of two. entries >= 2 and entries <= 2^29.
+	 */
+	public TranspositionTable ( int entries ) {
+		if ( entries < 2 || entries > 1 << 29 ) {
+			throw new IllegalArgumentException("The number of entries must be between 2 and 2^29.");
+		}
+		int buckets = Integer.highestOneBit(entries - 1);
+		table_ = new AtomicLongArray(buckets * 4);
+		mask_ = buckets - 1;
+		age_ = 0;
+		probes_ = new LongAdder();
+		hits_ = new LongAdder();
+		stores_ = new LongAdder();
+		evictions_ = new LongAdder();
+	}
+
+	/**
+	 * Looks up a position.
+	 * 
+	 * @param key
+	 *          The position's key.
+	 * @return The position's data word, to be read with getScore, getMove and
+	 *         getDepth, or MISS if the position is not in the table.
+	 */
+	public long probe ( long key ) {
+		probes_.increment();
+		int index = bucket(key);
+		for ( int i = index ; i < index + 4 ; i += 2 ) {
+			long data = table_.getOpaque(i + 1);
+			if ( data != MISS && (table_.getOpaque(i) ^ data) == key ) {
+				hits_.increment();
+				return data;
+			}
+		}
+		return MISS;
+	}
+
+	/**
+	 * Stores the evaluation of a position.
+	 * 
+	 * @param key
+	 *          The position's key.
+	 * @param score
+	 *          The position's score.
+	 * @param move
+	 *          The position's best move, or NO_MOVE if it has none that fits.
+	 *          move >= 0 and move <= 0xFFFF; a move is 16 bits, so a caller
+	 *          must map any move it cannot encode to NO_MOVE rather than store
+	 *          a different one.
+	 * @param depth
+	 *          The depth the position was searched to. depth >= 0 and depth <
+	 *          255.
+	 */
+	public void store ( long key, double score, int move, int depth ) {
+		if ( move < 0 || move > 0xFFFF || depth < 0 || depth >= 255 ) {
+			throw new IllegalArgumentException("The move or depth is out of range.");
+		}
+		int age = age_;
+		long data = (long) Float.floatToRawIntBits((float) score) << SCORE_SHIFT
+		    | (long) move << MOVE_SHIFT | (depth + 1) << DEPTH_SHIFT | age;
+		int index = bucket(key);
+		int victim = -1;
+		int victimRank = Integer.MAX_VALUE;
+		for ( int i = index ; i < index + 4 ; i += 2 ) {
+			long old = table_.getOpaque(i + 1);
+			if ( old == MISS || (table_.getOpaque(i) ^ old) == key ) {
+				// an empty entry or the same position: no other position is lost
+				victim = i;
+				victimRank = -1;
+				break;
+			}
+			// entries of older searches go first, then shallower ones
+			int rank = (age(old) == age ? 256 : 0) + depth(old);
+			if ( rank < victimRank ) {
+				victim = i;
+				victimRank = rank;
+			}
+		}
+		if ( victimRank >= 0 ) {
+			evictions_.increment();
+		}
+		table_.setOpaque(victim,key ^ data);
+		table_.setOpaque(victim + 1,data);
+		stores_.increment();
+	}
+
+	/**
+	 * Starts a new search: entries stored from now on are younger than the
+	 * ones already in the table, which are replaced first.
+	 */
+	public void newSearch () {
+		age_ = (age_ + 1) & 0xFF;
+	}
+
+	/**
+	 * Empties the table. It must not be used by other threads meanwhile.
+	 */
+	public void clear () {
+		for ( int i = 0 ; i < table_.length() ; i++ ) {
+			table_.setOpaque(i,0);
+		}
+	}
+
+	/**
+	 * Gets the number of positions the table can hold.
+	 * 
+	 * @return The capacity.
+	 */
+	public int getCapacity () {
+		return table_.length() / 2;
+	}
+
+	/**
+	 * Gets the number of lookups.
+	 * 
+	 * @return The number of calls to probe.
+	 */
+	public long getProbes () {
+		return probes_.sum();
+	}
+
+	/**
+	 * Gets the number of lookups that found their position.
+	 * 
+	 * @return The number of hits.
+	 */
+	public long getHits () {
+		return hits_.sum();
+	}
+
+	/**
+	 * Gets the fraction of lookups that found their position.
+	 * 
+	 * @return The hit rate, or 0 if there were no lookups.
+	 */
+	public double getHitRate () {
+		long probes = probes_.sum();
+		return probes == 0 ? 0 : (double) hits_.sum() / probes;
+	}
+
+	/**
+	 * Gets the number of evaluations stored.
+	 * 
+	 * @return The number of calls to store.
+	 */
+	public long getStores () {
+		return stores_.sum();
+	}
+
+	/**
+	 * Gets the number of positions replaced by other positions.
+	 * 
+	 * @return The number of evictions.
+	 */
+	public long getEvictions () {
+		return evictions_.sum();
+	}
+
+	/**
+	 * Gets the score of a data word.
+	 * 
+	 * @param data
+	 *          A data word returned by probe.
+	 * @return The score.
+	 */
+	public static double getScore ( long data ) {
+		return Float.intBitsToFloat((int) (data >>> SCORE_SHIFT));
+	}
+
+	/**
+	 * Gets the best move of a data word.
+	 * 
+	 * @param data
+	 *          A data word returned by probe.
+	 * @return The move, or NO_MOVE if no move is stored.
+	 */
+	public static int getMove ( long data ) {
+		return (int) (data >>> MOVE_SHIFT) & 0xFFFF;
+	}
+
+	/**
+	 * Gets the search depth of a data word.
+	 * 
+	 * @param data
+	 *          A data word returned by probe.
+	 * @return The depth.
+	 */
+	public static int getDepth ( long data ) {
+		return depth(data) - 1;
+	}
+
+	/**
+	 * Gets the depth field of a data word, which is one more than the depth so
+	 * that no stored data word is MISS.
+	 * 
+	 * @param data
+	 *          The data word.
+	 * @return The depth field.
+	 */
+	private static int depth ( long data ) {
+		return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * Gets the age of a data word.
+	 * 
+	 * @param data
+	 *          The data word.
+	 * @return The age.
+	 */
+	private static int age ( long data ) {
+		return (int) data & 0xFF;
+	}
+
+	/**
+	 * Gets the index of the first long of a key's bucket.
+	 * 
+	 * @param key
+	 *          The key.
+	 * @return The index.
+	 */
+	private int bucket ( long key ) {
+		// the low bits of a mixed key are as random as the high ones
+		return ((int) key & mask_) << 2;
+	}
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Tester for TranspositionTable.
+ * 
+ * @author Sayf Elhawary
+ */
+public class TranspositionTableTester {
+
+	public static void main(String[] args) {
+
+		boolean assertsEnabled = false;
+		assert assertsEnabled = true;
+		System.out.println("assertions are on: " + assertsEnabled);
+		System.out.println();
+
+		{
+			// name: probe - finds what was stored
+			// starting state: empty table
+			// input: key - 12345, score - -17.5, move - 0x0203, depth - 2
+			// expected result: true
+			System.out.println("probe - finds what was stored");
+			System.out.println();
+			TranspositionTable table = new TranspositionTable(1024);
+			boolean test = table.probe(12345) == TranspositionTable.MISS;
+			table.store(12345, -17.5, 0x0203, 2);
+			long data = table.probe(12345);
+			test = test && data != TranspositionTable.MISS && TranspositionTable.getScore(data) == -17.5
+					&& TranspositionTable.getMove(data) == 0x0203 && TranspositionTable.getDepth(data) == 2
+					&& table.probe(12345 + 1024 * 4) == TranspositionTable.MISS && table.getHits() == 1
+					&& table.getProbes() == 3 && table.getHitRate() == 1.0 / 3;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: probe - finds a position stored with no move
+			// starting state: empty table
+			// input: key - 12345, score - 3, move - NO_MOVE, depth - 0
+			// expected result: true
+			System.out.println("probe - finds a position stored with no move");
+			System.out.println();
+			TranspositionTable table = new TranspositionTable(1024);
+			table.store(12345, 3, TranspositionTable.NO_MOVE, 0);
+			long data = table.probe(12345);
+			boolean test = data != TranspositionTable.MISS && TranspositionTable.getScore(data) == 3
+					&& TranspositionTable.getMove(data) == TranspositionTable.NO_MOVE
+					&& TranspositionTable.getDepth(data) == 0;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+		{
+			// name: store - replaces older, then shallower entries
+			// starting state: table with a single bucket
+			// input: three keys for the same bucket
+			// expected result: true
+			System.out.println("store - replaces older, then shallower entries");
+			System.out.println();
+			TranspositionTable table = new TranspositionTable(2);
+			table.store(1, 1, 0, 5);
+			table.newSearch();
+			table.store(2, 2, 0, 1);
+			table.store(3, 3, 0, 0); // the entry of the older search goes
+			boolean test = table.probe(1) == TranspositionTable.MISS && table.probe(2) != TranspositionTable.MISS
+					&& table.probe(3) != TranspositionTable.MISS;
+			table.store(4, 4, 0, 3); // the shallower entry goes
+			test = test && table.probe(3) == TranspositionTable.MISS && table.probe(2) != TranspositionTable.MISS
+					&& table.probe(4) != TranspositionTable.MISS && table.getEvictions() == 2
+					&& table.getStores() == 4;
+			if (test) {
+				System.out.println("PASSED!");
+			} else {
+				System.out.println("FAILED!");
+			}
+			System.out.println();
+		}
+
+	}
+
+}